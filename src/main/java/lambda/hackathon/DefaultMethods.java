@@ -190,6 +190,10 @@ public class DefaultMethods {
 
             people.sort(comparing(Person::getLastName).
                     thenComparing(Person::getFirstName));
+
+            // The same order, extracting the names once per person and
+            // sorting packed prefixes of them
+            KeySort.sort(people, Person::getLastName, Person::getFirstName);
         }
     }
 
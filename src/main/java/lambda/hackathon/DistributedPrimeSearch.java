@@ -0,0 +1,493 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.math.BigInteger.ONE;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Spreads {@link MillerRabin} and {@link ProbablePrime} workloads over
+ * several JVM processes.
+ * <p>
+ * A {@link Coordinator} listens on a socket and hands out {@link Shard}s,
+ * one at a time, to each connected {@link Worker}.  If a worker dies, or
+ * does not answer within the shard timeout, its connection is dropped and
+ * the shard is put back to be picked up by another worker, up to
+ * {@link Coordinator#MAX_ATTEMPTS} times before the job fails.
+ * <p>
+ * The wire protocol is a stream of {@link DataOutputStream} records.  The
+ * coordinator sends an op byte, {@code TASK} followed by a shard or
+ * {@code SHUTDOWN}; the worker answers each task with the shard id, the
+ * number of results and the results as length-prefixed two's-complement
+ * byte arrays.
+ */
+public class DistributedPrimeSearch {
+
+    static final byte SHUTDOWN = 0;
+    static final byte TASK = 1;
+
+    static final byte RANGE = 1;
+    static final byte GENERATE = 2;
+
+    public static void main(String[] args) throws Exception {
+        try (Coordinator c = new Coordinator(0, 60, TimeUnit.SECONDS)) {
+            List<Process> workers = c.forkLocalWorkers(3);
+
+            // Kill a worker once every worker holds a shard, so its shard is
+            // reassigned, and check the results are those of a single JVM
+            BigInteger from = BigInteger.ONE.shiftLeft(64);
+            List<Shard> shards = rangeShards(from, from.add(BigInteger.valueOf(100_000)), 32, 20);
+            Thread killer = new Thread(() -> {
+                try {
+                    while (c.busy.get() < workers.size()) {
+                        Thread.sleep(1);
+                    }
+                }
+                catch (InterruptedException e) {
+                    return;
+                }
+                workers.get(0).destroyForcibly();
+            });
+            killer.start();
+            List<BigInteger> primes = c.run(shards);
+            killer.interrupt();
+            killer.join();
+
+            List<BigInteger> local = shards.stream()
+                    .flatMap(s -> s.compute().stream())
+                    .collect(toList());
+            System.out.println(primes.size() + " primes in [2^64, 2^64 + 100000), " +
+                               c.reassigned.get() + " shards reassigned");
+            if (c.reassigned.get() == 0 || !primes.equals(local))
+                throw new IllegalStateException("Results differ from a single JVM, or no shard was reassigned");
+
+            System.out.println(c.run(generateShards(20, 512, 2)).size() + " probable primes of 512 bits");
+        }
+    }
+
+    /**
+     * Splits {@code [from, to)} into {@code n} contiguous shards, each of which
+     * reports the probable primes in its range.
+     */
+    static List<Shard> rangeShards(BigInteger from, BigInteger to, int n, int iterations) {
+        BigInteger size = to.subtract(from);
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            BigInteger lo = from.add(size.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(n)));
+            BigInteger hi = from.add(size.multiply(BigInteger.valueOf(i + 1)).divide(BigInteger.valueOf(n)));
+            if (lo.compareTo(hi) < 0)
+                shards.add(new RangeShard(i, lo, hi, iterations));
+        }
+        return shards;
+    }
+
+    /**
+     * Splits the generation of {@code n} probable primes into batches of at
+     * most {@code batch} primes.
+     */
+    static List<Shard> generateShards(int n, int bitLength, int batch) {
+        List<Shard> shards = new ArrayList<>();
+        for (int i = 0; i * batch < n; i++) {
+            shards.add(new GenerateShard(i, Math.min(batch, n - i * batch), bitLength));
+        }
+        return shards;
+    }
+
+    static abstract class Shard {
+        final long id;
+
+        Shard(long id) {
+            this.id = id;
+        }
+
+        abstract List<BigInteger> compute();
+
+        abstract void writeTo(DataOutputStream out) throws IOException;
+
+        static Shard readFrom(DataInputStream in) throws IOException {
+            long id = in.readLong();
+            byte kind = in.readByte();
+            switch (kind) {
+                case RANGE:
+                    return new RangeShard(id, readBigInteger(in), readBigInteger(in), in.readInt());
+                case GENERATE:
+                    return new GenerateShard(id, in.readInt(), in.readInt());
+                default:
+                    throw new IOException("Unknown shard kind " + kind);
+            }
+        }
+    }
+
+    /**
+     * The probable primes in {@code [from, to)}, tested with
+     * {@link MillerRabin.Imperative}.
+     */
+    static final class RangeShard extends Shard {
+        final BigInteger from;
+        final BigInteger to;
+        final int iterations;
+
+        RangeShard(long id, BigInteger from, BigInteger to, int iterations) {
+            super(id);
+            this.from = from;
+            this.to = to;
+            this.iterations = iterations;
+        }
+
+        @Override
+        List<BigInteger> compute() {
+            MillerRabin.MillerRabinTest mrt = new MillerRabin.Imperative();
+            List<BigInteger> primes = new ArrayList<>();
+            for (BigInteger i = from; i.compareTo(to) < 0; i = i.add(ONE)) {
+                if (MillerRabin.isProbablePrime(i, mrt, iterations)) {
+                    primes.add(i);
+                }
+            }
+            return primes;
+        }
+
+        @Override
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(id);
+            out.writeByte(RANGE);
+            writeBigInteger(out, from);
+            writeBigInteger(out, to);
+            out.writeInt(iterations);
+        }
+    }
+
+    /**
+     * A batch of random probable primes from {@link ProbablePrime.Imperative}.
+     */
+    static final class GenerateShard extends Shard {
+        final int n;
+        final int bitLength;
+
+        GenerateShard(long id, int n, int bitLength) {
+            super(id);
+            this.n = n;
+            this.bitLength = bitLength;
+        }
+
+        @Override
+        List<BigInteger> compute() {
+            return new ProbablePrime.Imperative().probablePrimes(n, bitLength);
+        }
+
+        @Override
+        void writeTo(DataOutputStream out) throws IOException {
+            out.writeLong(id);
+            out.writeByte(GENERATE);
+            out.writeInt(n);
+            out.writeInt(bitLength);
+        }
+    }
+
+    static void writeBigInteger(DataOutputStream out, BigInteger b) throws IOException {
+        byte[] bytes = b.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static BigInteger readBigInteger(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    static class Coordinator implements AutoCloseable {
+        // The most workers a shard is sent to, so a shard that kills or hangs
+        // every worker fails its job rather than disconnecting them all
+        static final int MAX_ATTEMPTS = 3;
+
+        final ServerSocket server;
+        final int shardTimeoutMillis;
+        final BlockingQueue<Task> pending = new LinkedBlockingQueue<>();
+        final List<Thread> connections = Collections.synchronizedList(new ArrayList<>());
+        final List<Process> processes = Collections.synchronizedList(new ArrayList<>());
+        final Thread acceptor;
+        // The number of workers holding a shard
+        final AtomicInteger busy = new AtomicInteger();
+        // The number of shards put back after a worker failed
+        final AtomicInteger reassigned = new AtomicInteger();
+
+        /**
+         * @param port the port to listen on, or 0 for an ephemeral port
+         * @param shardTimeout how long a worker may take over a single shard
+         *        before it is presumed dead and the shard is reassigned
+         */
+        Coordinator(int port, long shardTimeout, TimeUnit unit) throws IOException {
+            this.server = new ServerSocket(port);
+            this.shardTimeoutMillis = (int) Math.min(Integer.MAX_VALUE, unit.toMillis(shardTimeout));
+            this.acceptor = new Thread(this::accept, "coordinator-acceptor");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        int port() {
+            return server.getLocalPort();
+        }
+
+        /**
+         * Starts {@code n} worker JVMs on this host, using the same java
+         * executable and class path as this JVM, connected to this coordinator.
+         */
+        List<Process> forkLocalWorkers(int n) throws IOException {
+            String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+            List<Process> ps = new ArrayList<>();
+            for (int i = 0; i < n; i++) {
+                Process p = new ProcessBuilder(java,
+                                               "-cp", System.getProperty("java.class.path"),
+                                               Worker.class.getName(),
+                                               InetAddress.getLoopbackAddress().getHostAddress(),
+                                               Integer.toString(port()))
+                        .inheritIO()
+                        .start();
+                ps.add(p);
+            }
+            processes.addAll(ps);
+            return ps;
+        }
+
+        /**
+         * Runs all shards to completion on the connected workers and returns
+         * their results, in shard order.
+         *
+         * @throws IllegalStateException if shards remain but no worker has
+         *         been connected for the shard timeout, as when every worker
+         *         has died, or if a shard failed {@link #MAX_ATTEMPTS} times
+         */
+        List<BigInteger> run(List<Shard> shards) throws InterruptedException {
+            Job job = new Job(shards.size());
+            for (Shard s : shards) {
+                pending.add(new Task(job, s));
+            }
+
+            // Workers may still be starting, so only give up once there have
+            // been none for as long as a worker may take over a shard
+            long lastWorker = System.nanoTime();
+            while (!job.done.await(100, TimeUnit.MILLISECONDS)) {
+                if (!connections.isEmpty())
+                    lastWorker = System.nanoTime();
+                else if (System.nanoTime() - lastWorker > TimeUnit.MILLISECONDS.toNanos(shardTimeoutMillis)) {
+                    pending.removeIf(t -> t.job == job);
+                    throw new IllegalStateException("No workers, " + job.done.getCount() + " shards not run");
+                }
+            }
+            if (job.failure != null) {
+                pending.removeIf(t -> t.job == job);
+                throw job.failure;
+            }
+
+            return shards.stream()
+                    .flatMap(s -> job.results.get(s.id).stream())
+                    .collect(toList());
+        }
+
+        void accept() {
+            while (!server.isClosed()) {
+                try {
+                    Socket s = server.accept();
+                    s.setSoTimeout(shardTimeoutMillis);
+                    Thread t = new Thread(() -> serve(s), "coordinator-" + s.getRemoteSocketAddress());
+                    t.setDaemon(true);
+                    connections.add(t);
+                    t.start();
+                }
+                catch (IOException e) {
+                    // Server socket closed
+                }
+            }
+        }
+
+        void serve(Socket s) {
+            try (Socket socket = s;
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                 DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (true) {
+                    Task t;
+                    try {
+                        t = pending.take();
+                    }
+                    catch (InterruptedException e) {
+                        out.writeByte(SHUTDOWN);
+                        out.flush();
+                        return;
+                    }
+
+                    busy.incrementAndGet();
+                    try {
+                        out.writeByte(TASK);
+                        t.shard.writeTo(out);
+                        out.flush();
+
+                        long id = in.readLong();
+                        int n = in.readInt();
+                        List<BigInteger> rs = new ArrayList<>(n);
+                        for (int i = 0; i < n; i++) {
+                            rs.add(readBigInteger(in));
+                        }
+                        if (id != t.shard.id)
+                            throw new IOException("Expected result for shard " + t.shard.id + " but got " + id);
+                        t.job.complete(id, rs);
+                    }
+                    catch (IOException e) {
+                        // Worker died, hung or misbehaved, let another worker have the shard
+                        if (++t.attempts < MAX_ATTEMPTS) {
+                            reassigned.incrementAndGet();
+                            pending.add(t);
+                        }
+                        else {
+                            t.job.fail(new IllegalStateException(
+                                    "Shard " + t.shard.id + " failed on " + t.attempts + " workers", e));
+                        }
+                        throw e;
+                    }
+                    finally {
+                        busy.decrementAndGet();
+                    }
+                }
+            }
+            catch (IOException e) {
+                // Connection dropped
+            }
+            finally {
+                connections.remove(Thread.currentThread());
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            server.close();
+            synchronized (connections) {
+                connections.forEach(Thread::interrupt);
+            }
+            synchronized (processes) {
+                for (Process p : processes) {
+                    try {
+                        if (!p.waitFor(1, TimeUnit.SECONDS))
+                            p.destroyForcibly();
+                    }
+                    catch (InterruptedException e) {
+                        p.destroyForcibly();
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        }
+
+        static final class Job {
+            final Map<Long, List<BigInteger>> results = new ConcurrentHashMap<>();
+            final CountDownLatch done;
+            volatile IllegalStateException failure;
+
+            Job(int shards) {
+                this.done = new CountDownLatch(shards);
+            }
+
+            void complete(long id, List<BigInteger> rs) {
+                // A shard may complete twice if a slow worker was presumed dead
+                if (results.putIfAbsent(id, rs) == null)
+                    done.countDown();
+            }
+
+            void fail(IllegalStateException e) {
+                failure = e;
+                // Release run, which throws the failure
+                while (done.getCount() > 0) {
+                    done.countDown();
+                }
+            }
+        }
+
+        static final class Task {
+            final Job job;
+            final Shard shard;
+            // The number of workers the shard failed on, only touched by the
+            // connection holding the task
+            int attempts;
+
+            Task(Job job, Shard shard) {
+                this.job = job;
+                this.shard = shard;
+            }
+        }
+    }
+
+    static class Worker {
+
+        public static void main(String[] args) throws IOException {
+            String host = args.length > 0 ? args[0] : "localhost";
+            int port = Integer.parseInt(args.length > 1 ? args[1] : "9999");
+            try (Socket socket = new Socket(host, port)) {
+                serve(socket);
+            }
+        }
+
+        static void serve(Socket socket) throws IOException {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            try {
+                while (in.readByte() == TASK) {
+                    Shard s = Shard.readFrom(in);
+                    List<BigInteger> rs = s.compute();
+
+                    out.writeLong(s.id);
+                    out.writeInt(rs.size());
+                    for (BigInteger r : rs) {
+                        writeBigInteger(out, r);
+                    }
+                    out.flush();
+                }
+            }
+            catch (EOFException | SocketException e) {
+                // Coordinator went away
+            }
+        }
+    }
+}
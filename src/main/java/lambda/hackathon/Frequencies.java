@@ -0,0 +1,423 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+/**
+ * Frequency counts of the values of an {@code IntStream} or
+ * {@code LongStream}, without boxing.
+ * <p>
+ * A {@link Dense} counter holds a {@code long[]} indexed by value, for small
+ * domains such as bytes or chars.  A {@link Sparse} counter is an
+ * open-addressing hash table of values and counts, with linear probing, for
+ * values from a large domain.  Both are mutable result containers for the
+ * three-argument {@code collect} of a primitive stream, such as
+ * <pre>{@code
+ *     s.collect(() -> new Dense(0, 255), Dense::add, Dense::addAll)
+ * }</pre>
+ * which counts a parallel stream into a counter per split, then sums the
+ * counters.  {@link #dense} and {@link #sparse} do just that; {@link #chars}
+ * counts sparsely and turns the sum into a dense counter.
+ * <p>
+ * The counts are read back as a {@link Sorted} view, of parallel arrays of
+ * values and counts ordered by value or by count.
+ */
+public class Frequencies {
+
+    public static void main(String[] args) {
+        Sorted s = chars(System.getProperties().keySet().stream()
+                                 .flatMapToInt(o -> o.toString().chars())
+                                 .parallel())
+                .byKey();
+        s.forEach((c, n) -> System.out.println((char) c + " -> " + n));
+
+        s.byCount().forEach((c, n) -> System.out.println(n + " -> " + (char) c));
+    }
+
+    @FunctionalInterface
+    interface LongLongConsumer {
+        void accept(long key, long count);
+    }
+
+    /**
+     * Counts the values of a stream, each of which must be from {@code min}
+     * to {@code max} inclusive.
+     */
+    static Dense dense(IntStream s, int min, int max) {
+        return s.collect(() -> new Dense(min, max), Dense::add, Dense::addAll);
+    }
+
+    /**
+     * Counts the chars of a stream, such as {@code String.chars()}.
+     */
+    static Dense chars(IntStream s) {
+        // A dense counter of every char is 512K, too much for each split of
+        // a parallel stream of text that uses a few of them
+        return sparse(s).dense();
+    }
+
+    static Sparse sparse(IntStream s) {
+        return s.collect(Sparse::new, Sparse::add, Sparse::addAll);
+    }
+
+    static Sparse sparse(LongStream s) {
+        return s.collect(Sparse::new, Sparse::add, Sparse::addAll);
+    }
+
+    /**
+     * Counts of the values of a bounded domain, in an array indexed by value.
+     * <p>
+     * A value outside the domain throws
+     * {@code ArrayIndexOutOfBoundsException}.  The counts of a parallel stream
+     * are summed, so every split should count the same domain; the array
+     * of each split is the size of the domain, which should be small next to
+     * the number of values a split counts.
+     */
+    static final class Dense {
+        final int min;
+        final long[] counts;
+        long total;
+
+        Dense(int min, int max) {
+            if (max < min || (long) max - min >= Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Domain is not from " + min + " to " + max);
+
+            this.min = min;
+            this.counts = new long[max - min + 1];
+        }
+
+        void add(int value) {
+            counts[value - min]++;
+            total++;
+        }
+
+        void addAll(Dense that) {
+            if (that.min != min || that.counts.length != counts.length)
+                throw new IllegalArgumentException("Counters of different domains");
+
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += that.counts[i];
+            }
+            total += that.total;
+        }
+
+        long count(int value) {
+            int i = value - min;
+            return i >= 0 && i < counts.length ? counts[i] : 0;
+        }
+
+        /**
+         * @return the number of values counted
+         */
+        long total() {
+            return total;
+        }
+
+        /**
+         * @return the number of distinct values counted
+         */
+        int distinct() {
+            int n = 0;
+            for (long c : counts) {
+                if (c != 0)
+                    n++;
+            }
+            return n;
+        }
+
+        Sorted byKey() {
+            Sorted s = new Sorted(distinct());
+            int j = 0;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    s.keys[j] = min + i;
+                    s.counts[j++] = counts[i];
+                }
+            }
+            return s;
+        }
+
+        Sorted byCount() {
+            return byKey().byCount();
+        }
+    }
+
+    /**
+     * Counts of values of an unbounded domain, in an open-addressing hash
+     * table of values and counts, with linear probing.
+     * <p>
+     * As in {@link LongIntMap}, the value {@code 0} marks an empty slot, so
+     * its count is held aside.  The table is at most half full.
+     */
+    static final class Sparse {
+        long[] keys;
+        long[] counts;
+        long zeroCount;
+        int size;
+        int mask;
+        long total;
+
+        Sparse() {
+            this(16);
+        }
+
+        Sparse(int expected) {
+            int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.counts = new long[capacity];
+            this.mask = capacity - 1;
+        }
+
+        void add(int value) {
+            add((long) value, 1);
+        }
+
+        void add(long value) {
+            add(value, 1);
+        }
+
+        void add(long k, long count) {
+            total += count;
+            if (k == 0) {
+                zeroCount += count;
+                return;
+            }
+
+            for (int i = LongHashSet.mix(k) & mask; ; i = (i + 1) & mask) {
+                long e = keys[i];
+                if (e == k) {
+                    counts[i] += count;
+                    return;
+                }
+                if (e == 0) {
+                    keys[i] = k;
+                    counts[i] = count;
+                    if (++size > (mask + 1) >>> 1)
+                        grow();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Adds the counts of another counter, which may be left with the
+         * counts of either.
+         */
+        void addAll(Sparse that) {
+            // Add the smaller table to the larger, so combining the counters
+            // of a parallel stream probes the fewest slots
+            if (that.size > size)
+                swap(that);
+            that.forEach(this::add);
+        }
+
+        void swap(Sparse that) {
+            long[] k = keys, c = counts;
+            long z = zeroCount, t = total;
+            int n = size, m = mask;
+            keys = that.keys; counts = that.counts; zeroCount = that.zeroCount;
+            size = that.size; mask = that.mask; total = that.total;
+            that.keys = k; that.counts = c; that.zeroCount = z;
+            that.size = n; that.mask = m; that.total = t;
+        }
+
+        long count(long k) {
+            if (k == 0)
+                return zeroCount;
+
+            for (int i = LongHashSet.mix(k) & mask; ; i = (i + 1) & mask) {
+                long e = keys[i];
+                if (e == k)
+                    return counts[i];
+                if (e == 0)
+                    return 0;
+            }
+        }
+
+        long total() {
+            return total;
+        }
+
+        int distinct() {
+            return zeroCount != 0 ? size + 1 : size;
+        }
+
+        /**
+         * Passes each value and its count to an action, in no particular
+         * order.
+         */
+        void forEach(LongLongConsumer action) {
+            if (zeroCount != 0)
+                action.accept(0, zeroCount);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0)
+                    action.accept(keys[i], counts[i]);
+            }
+        }
+
+        Sorted byKey() {
+            long[] sorted = new long[distinct()];
+            int j = 0;
+            if (zeroCount != 0)
+                sorted[j++] = 0;
+            for (long k : keys) {
+                if (k != 0)
+                    sorted[j++] = k;
+            }
+            Arrays.parallelSort(sorted);
+
+            Sorted s = new Sorted(sorted.length);
+            for (int i = 0; i < sorted.length; i++) {
+                s.keys[i] = sorted[i];
+                s.counts[i] = count(sorted[i]);
+            }
+            return s;
+        }
+
+        Sorted byCount() {
+            return byKey().byCount();
+        }
+
+        /**
+         * Returns the counts as a {@link Dense} counter from the least to the
+         * greatest value counted.
+         */
+        Dense dense() {
+            long min = zeroCount != 0 || size == 0 ? 0 : Long.MAX_VALUE;
+            long max = zeroCount != 0 || size == 0 ? 0 : Long.MIN_VALUE;
+            for (long k : keys) {
+                if (k != 0) {
+                    min = Math.min(min, k);
+                    max = Math.max(max, k);
+                }
+            }
+            if (min < Integer.MIN_VALUE || max > Integer.MAX_VALUE)
+                throw new IllegalStateException("Values are not ints");
+
+            Dense d = new Dense((int) min, (int) max);
+            forEach((k, c) -> d.counts[(int) (k - d.min)] = c);
+            d.total = total;
+            return d;
+        }
+
+        void grow() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            keys = new long[oldKeys.length * 2];
+            counts = new long[oldKeys.length * 2];
+            mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                long k = oldKeys[j];
+                if (k != 0) {
+                    int i = LongHashSet.mix(k) & mask;
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = k;
+                    counts[i] = oldCounts[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Values and their counts, as parallel arrays in order.
+     */
+    static final class Sorted {
+        final long[] keys;
+        final long[] counts;
+
+        Sorted(int size) {
+            this.keys = new long[size];
+            this.counts = new long[size];
+        }
+
+        int size() {
+            return keys.length;
+        }
+
+        long key(int i) {
+            return keys[i];
+        }
+
+        long count(int i) {
+            return counts[i];
+        }
+
+        void forEach(LongLongConsumer action) {
+            for (int i = 0; i < keys.length; i++) {
+                action.accept(keys[i], counts[i]);
+            }
+        }
+
+        /**
+         * Returns the values in descending order of count, values with the
+         * same count in the order of this view.
+         * <p>
+         * Each entry is packed into a {@code long} of the rank of its count,
+         * in the high half, and its index in this view, in the low half, so
+         * the order is that of a primitive sort.
+         */
+        Sorted byCount() {
+            int n = keys.length;
+            long[] distinct = counts.clone();
+            Arrays.parallelSort(distinct);
+            int ranks = 0;
+            for (int i = 0; i < n; i++) {
+                if (i == 0 || distinct[i] != distinct[i - 1])
+                    distinct[ranks++] = distinct[i];
+            }
+
+            long[] packed = new long[n];
+            for (int i = 0; i < n; i++) {
+                long rank = ranks - 1 - Arrays.binarySearch(distinct, 0, ranks, counts[i]);
+                packed[i] = rank << 32 | i;
+            }
+            Arrays.parallelSort(packed);
+
+            Sorted s = new Sorted(n);
+            for (int i = 0; i < n; i++) {
+                int j = (int) packed[i];
+                s.keys[i] = keys[j];
+                s.counts[i] = counts[j];
+            }
+            return s;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("[");
+            for (int i = 0; i < keys.length; i++) {
+                if (i > 0)
+                    sb.append(", ");
+                sb.append(keys[i]).append('=').append(counts[i]);
+            }
+            return sb.append(']').toString();
+        }
+    }
+}
@@ -0,0 +1,467 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.LongPredicate;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * Gosper's HashLife, which advances a world by an arbitrary number of
+ * generations in time roughly logarithmic in that number for regular
+ * patterns.
+ * <p>
+ * The world is a quadtree of {@link Node}s.  Nodes are canonical, hash-consed
+ * so that identical sub-patterns, anywhere in space and time, are the same
+ * node, and each node memoises its successors: the centre half of the node
+ * advanced by {@code 2^j} generations, up to {@code 2^(k-2)} generations for
+ * a node of level {@code k}.
+ * <p>
+ * The hash-consing table holds nodes weakly, so nodes no longer reachable
+ * from a world, or from the memoised successors of reachable nodes, are
+ * reclaimed by the garbage collector.  When the table grows beyond its bound
+ * the memoised successors are dropped, making all but the nodes of live
+ * worlds unreachable.
+ * <p>
+ * http://en.wikipedia.org/wiki/Hashlife
+ */
+public class HashLife implements Life.Engine {
+
+    public static void main(String[] args) {
+        // R-pentomino, which stabilises after 1103 generations
+        Set<Cell> world = new HashSet<>(Arrays.asList(Cell.of(1, 0), Cell.of(2, 0),
+                                                      Cell.of(0, 1), Cell.of(1, 1),
+                                                      Cell.of(1, 2)));
+
+        HashLife h = new HashLife();
+        for (long g = 1; g <= 1_000_000_000_000L; g *= 10) {
+            System.out.println(g + " -> " + h.advance(h.fromCells(world), g).population);
+        }
+    }
+
+    static final class Node {
+        final int level;
+        final Node nw, ne, sw, se;
+        final long population;
+        final int hash;
+
+        // Memoised successors, indexed by log2 of the generations advanced
+        Node[] successors;
+
+        // Leaf
+        Node(boolean alive) {
+            this.level = 0;
+            this.nw = this.ne = this.sw = this.se = null;
+            this.population = alive ? 1 : 0;
+            this.hash = alive ? 1 : 0;
+        }
+
+        Node(Node nw, Node ne, Node sw, Node se) {
+            this.level = nw.level + 1;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.population = nw.population + ne.population + sw.population + se.population;
+            this.hash = hash(nw, ne, sw, se);
+        }
+
+        static int hash(Node nw, Node ne, Node sw, Node se) {
+            int h = nw.hash;
+            h = h * 0x9E3779B1 + ne.hash;
+            h = h * 0x9E3779B1 + sw.hash;
+            h = h * 0x9E3779B1 + se.hash;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    static final class Ref extends WeakReference<Node> {
+        final int hash;
+        Ref next;
+
+        Ref(Node n, ReferenceQueue<Node> q, Ref next) {
+            super(n, q);
+            this.hash = n.hash;
+            this.next = next;
+        }
+    }
+
+    static final Node DEAD = new Node(false);
+    static final Node ALIVE = new Node(true);
+
+    final int maxNodes;
+    final LifeRule rule;
+    final ReferenceQueue<Node> queue = new ReferenceQueue<>();
+    Ref[] table = new Ref[1 << 16];
+    int size;
+    // The size at which memoised successors are next dropped
+    int threshold;
+
+    // The empty node of each level, held strongly
+    final List<Node> empties = new ArrayList<>();
+
+    HashLife() {
+        this(1 << 22);
+    }
+
+    /**
+     * @param maxNodes the number of nodes in the hash-consing table beyond
+     *        which memoised successors are dropped
+     */
+    HashLife(int maxNodes) {
+        this(maxNodes, LifeRule.CONWAY);
+    }
+
+    HashLife(int maxNodes, LifeRule rule) {
+        this.maxNodes = maxNodes;
+        this.rule = rule;
+        this.threshold = maxNodes;
+        empties.add(DEAD);
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world) {
+        return step(world, 1);
+    }
+
+    /**
+     * @throws ArithmeticException if a live cell moves beyond the range of
+     *         {@code int} coordinates, as a glider does after some billions
+     *         of generations
+     */
+    @Override
+    public Set<Cell> step(Set<Cell> world, long generations) {
+        return toCells(advance(fromCells(world), generations));
+    }
+
+    /**
+     * Returns the canonical node with the given quadrants.
+     */
+    Node join(Node nw, Node ne, Node sw, Node se) {
+        int h = Node.hash(nw, ne, sw, se);
+        int i = h & (table.length - 1);
+        for (Ref r = table[i]; r != null; r = r.next) {
+            Node n = r.get();
+            if (r.hash == h && n != null &&
+                n.nw == nw && n.ne == ne && n.sw == sw && n.se == se)
+                return n;
+        }
+
+        expunge();
+        if (size >= threshold) {
+            dropSuccessors();
+            // Collected nodes are only expunged after the next GC, so give
+            // it a chance to run before dropping again
+            threshold = size + maxNodes / 2;
+        }
+        if (size >= table.length)
+            resize();
+
+        Node n = new Node(nw, ne, sw, se);
+        i = h & (table.length - 1);
+        table[i] = new Ref(n, queue, table[i]);
+        size++;
+        return n;
+    }
+
+    Node empty(int level) {
+        while (empties.size() <= level) {
+            Node e = empties.get(empties.size() - 1);
+            empties.add(join(e, e, e, e));
+        }
+        return empties.get(level);
+    }
+
+    /**
+     * Removes the entries of nodes that have been garbage collected.
+     */
+    void expunge() {
+        for (Ref r; (r = (Ref) queue.poll()) != null; ) {
+            int i = r.hash & (table.length - 1);
+            for (Ref p = null, e = table[i]; e != null; p = e, e = e.next) {
+                if (e == r) {
+                    if (p == null)
+                        table[i] = e.next;
+                    else
+                        p.next = e.next;
+                    size--;
+                    break;
+                }
+            }
+        }
+        if (size < maxNodes / 2)
+            threshold = maxNodes;
+    }
+
+    /**
+     * Drops all memoised successors, so that nodes only reachable through
+     * them may be collected.
+     */
+    void dropSuccessors() {
+        for (Ref head : table) {
+            for (Ref r = head; r != null; r = r.next) {
+                Node n = r.get();
+                if (n != null)
+                    n.successors = null;
+            }
+        }
+    }
+
+    void resize() {
+        Ref[] old = table;
+        table = new Ref[old.length * 2];
+        for (Ref head : old) {
+            for (Ref r = head, next; r != null; r = next) {
+                next = r.next;
+                int i = r.hash & (table.length - 1);
+                r.next = table[i];
+                table[i] = r;
+            }
+        }
+    }
+
+    // Conversion, a level k root node covers [-2^(k-1), 2^(k-1)) squared
+
+    Node fromCells(Set<Cell> world) {
+        long[] cells = new long[world.size()];
+        int n = 0;
+        for (Cell c : world) {
+            cells[n++] = LifeSparse.pack(c.x, c.y);
+        }
+        return fromPacked(cells, n);
+    }
+
+    /**
+     * Builds a root node from the first {@code n} cells packed by
+     * {@link LifeSparse#pack}, reordering the cells.
+     */
+    Node fromPacked(long[] cells, int n) {
+        long max = 0;
+        for (int i = 0; i < n; i++) {
+            long x = LifeSparse.x(cells[i]), y = LifeSparse.y(cells[i]);
+            max = Math.max(max, Math.max(Math.abs(x), Math.abs(y)));
+        }
+
+        int level = 3;
+        while ((1L << (level - 1)) <= max) {
+            level++;
+        }
+        long half = 1L << (level - 1);
+        return build(level, -half, -half, cells, 0, n);
+    }
+
+    Node build(int level, long x0, long y0, long[] cells, int from, int to) {
+        if (from == to)
+            return empty(level);
+        if (level == 0)
+            return ALIVE;
+
+        long half = 1L << (level - 1);
+        int north = partition(cells, from, to, c -> LifeSparse.y(c) < y0 + half);
+        int nw = partition(cells, from, north, c -> LifeSparse.x(c) < x0 + half);
+        int sw = partition(cells, north, to, c -> LifeSparse.x(c) < x0 + half);
+        return join(build(level - 1, x0, y0, cells, from, nw),
+                    build(level - 1, x0 + half, y0, cells, nw, north),
+                    build(level - 1, x0, y0 + half, cells, north, sw),
+                    build(level - 1, x0 + half, y0 + half, cells, sw, to));
+    }
+
+    /**
+     * Moves the cells matching the predicate to the front of the range.
+     *
+     * @return the end of the matching cells
+     */
+    static int partition(long[] cells, int from, int to, LongPredicate p) {
+        int i = from;
+        for (int j = from; j < to; j++) {
+            if (p.test(cells[j])) {
+                long t = cells[i];
+                cells[i++] = cells[j];
+                cells[j] = t;
+            }
+        }
+        return i;
+    }
+
+    Set<Cell> toCells(Node root) {
+        Set<Cell> world = new HashSet<>();
+        forEach(root, (x, y) -> world.add(Cell.of(x, y)));
+        return world;
+    }
+
+    void forEach(Node root, Life.CellConsumer action) {
+        long half = 1L << (root.level - 1);
+        forEach(root, -half, -half, action);
+    }
+
+    void forEach(Node n, long x0, long y0, Life.CellConsumer action) {
+        if (n.population == 0)
+            return;
+        if (n.level == 0) {
+            if (x0 != (int) x0 || y0 != (int) y0)
+                throw new ArithmeticException("World moves beyond the range of cells");
+            action.accept((int) x0, (int) y0);
+            return;
+        }
+
+        long half = 1L << (n.level - 1);
+        forEach(n.nw, x0, y0, action);
+        forEach(n.ne, x0 + half, y0, action);
+        forEach(n.sw, x0, y0 + half, action);
+        forEach(n.se, x0 + half, y0 + half, action);
+    }
+
+    // Evolution
+
+    /**
+     * Returns a root node of level {@code k + 1} with the same centre, and
+     * the node at its centre.
+     */
+    Node centre(Node n) {
+        Node e = empty(n.level - 1);
+        return join(join(e, e, e, n.nw),
+                    join(e, e, n.ne, e),
+                    join(e, n.sw, e, e),
+                    join(n.se, e, e, e));
+    }
+
+    /**
+     * Returns the centre half of the node, at the same time.
+     */
+    Node inner(Node n) {
+        return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    /**
+     * Advances a root node by a number of generations, returning a root node
+     * with the same centre.
+     */
+    Node advance(Node root, long generations) {
+        for (int j = 0; generations != 0; j++, generations >>>= 1) {
+            if ((generations & 1) == 0)
+                continue;
+
+            // The pattern must lie within the centre half of the root, and
+            // the root be big enough, so no cell travels beyond the root in
+            // 2^j generations
+            while (root.level < j + 2 || inner(root).population != root.population) {
+                root = centre(root);
+            }
+            root = successor(centre(root), j);
+        }
+        return root;
+    }
+
+    /**
+     * Returns the centre half of a node of level {@code k >= 2} advanced by
+     * {@code 2^j} generations, where {@code j <= k - 2}.
+     */
+    Node successor(Node m, int j) {
+        int k = m.level;
+        if (m.population == 0)
+            return empty(k - 1);
+        if (m.successors != null && m.successors[j] != null)
+            return m.successors[j];
+
+        Node s;
+        if (k == 2) {
+            s = step4x4(m);
+        }
+        else {
+            // The nine overlapping nodes of level k - 1
+            Node n00 = m.nw;
+            Node n01 = join(m.nw.ne, m.ne.nw, m.nw.se, m.ne.sw);
+            Node n02 = m.ne;
+            Node n10 = join(m.nw.sw, m.nw.se, m.sw.nw, m.sw.ne);
+            Node n11 = join(m.nw.se, m.ne.sw, m.sw.ne, m.se.nw);
+            Node n12 = join(m.ne.sw, m.ne.se, m.se.nw, m.se.ne);
+            Node n20 = m.sw;
+            Node n21 = join(m.sw.ne, m.se.nw, m.sw.se, m.se.sw);
+            Node n22 = m.se;
+
+            if (j == k - 2) {
+                // Two half steps of 2^(k - 3) generations
+                Node c00 = successor(n00, k - 3), c01 = successor(n01, k - 3), c02 = successor(n02, k - 3);
+                Node c10 = successor(n10, k - 3), c11 = successor(n11, k - 3), c12 = successor(n12, k - 3);
+                Node c20 = successor(n20, k - 3), c21 = successor(n21, k - 3), c22 = successor(n22, k - 3);
+
+                s = join(successor(join(c00, c01, c10, c11), k - 3),
+                         successor(join(c01, c02, c11, c12), k - 3),
+                         successor(join(c10, c11, c20, c21), k - 3),
+                         successor(join(c11, c12, c21, c22), k - 3));
+            }
+            else {
+                // One step of 2^j generations, then take the centre
+                Node c00 = successor(n00, j), c01 = successor(n01, j), c02 = successor(n02, j);
+                Node c10 = successor(n10, j), c11 = successor(n11, j), c12 = successor(n12, j);
+                Node c20 = successor(n20, j), c21 = successor(n21, j), c22 = successor(n22, j);
+
+                s = join(join(c00.se, c01.sw, c10.ne, c11.nw),
+                         join(c01.se, c02.sw, c11.ne, c12.nw),
+                         join(c10.se, c11.sw, c20.ne, c21.nw),
+                         join(c11.se, c12.sw, c21.ne, c22.nw));
+            }
+        }
+
+        if (m.successors == null)
+            m.successors = new Node[k - 1];
+        m.successors[j] = s;
+        return s;
+    }
+
+    /**
+     * Advances the centre 2x2 cells of a 4x4 node by one generation.
+     */
+    Node step4x4(Node m) {
+        // Bit y * 4 + x is cell (x, y)
+        int bits = 0;
+        Node[] quadrants = {m.nw, m.ne, m.sw, m.se};
+        for (int q = 0; q < 4; q++) {
+            Node n = quadrants[q];
+            int x = (q & 1) * 2, y = (q >> 1) * 2;
+            bits |= (int) n.nw.population << (y * 4 + x);
+            bits |= (int) n.ne.population << (y * 4 + x + 1);
+            bits |= (int) n.sw.population << ((y + 1) * 4 + x);
+            bits |= (int) n.se.population << ((y + 1) * 4 + x + 1);
+        }
+
+        return join(cell(bits, 1, 1), cell(bits, 2, 1),
+                    cell(bits, 1, 2), cell(bits, 2, 2));
+    }
+
+    Node cell(int bits, int x, int y) {
+        // The three rows of the 3x3 neighbourhood, for the rule's table
+        int at = (y - 1) * 4 + x - 1;
+        int neighbourhood = ((bits >>> at) & 7) | (((bits >>> (at + 4)) & 7) << 3) | (((bits >>> (at + 8)) & 7) << 6);
+        return rule.next(neighbourhood) ? ALIVE : DEAD;
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A growable list of {@code int} values, without boxing.
+ * <p>
+ * The values are held in a chain of chunks, each an array with a count of
+ * the values it holds.  Appending fills the last chunk and then links a new
+ * chunk twice its size, up to {@link #MAX_CHUNK} values, so values are never
+ * copied as the list grows.  {@link #link} moves the chunks of one list to
+ * the end of another in constant time, which makes a list a cheap result
+ * container for a parallel stream:
+ * <pre>{@code
+ *     s.collect(IntList::new, IntList::add, IntList::link)
+ * }</pre>
+ * as {@link #collect} does.  Chunks may be partly filled after linking, so
+ * indexing walks the chain of chunks; the list is meant to be traversed,
+ * streamed or copied with {@link #toArray}.
+ *
+ * @see LongList
+ */
+public class IntList {
+
+    public static void main(String[] args) {
+        IntList numbers = collect(IntStream.rangeClosed(1, 1_000_000).parallel());
+        System.out.println(numbers.size() + " numbers, sum " + numbers.stream().asLongStream().sum());
+        System.out.println(collect(IntStream.rangeClosed(1, 8).map(i -> i * i)));
+    }
+
+    static final int FIRST_CHUNK = 16;
+    static final int MAX_CHUNK = 1 << 14;
+
+    static final class Chunk {
+        final int[] values;
+        int n;
+        Chunk next;
+
+        Chunk(int capacity) {
+            this.values = new int[capacity];
+        }
+    }
+
+    Chunk head;
+    Chunk tail;
+    int size;
+
+    static IntList collect(IntStream s) {
+        return s.collect(IntList::new, IntList::add, IntList::link);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void add(int value) {
+        Chunk t = tail;
+        if (t == null || t.n == t.values.length)
+            t = grow();
+        t.values[t.n++] = value;
+        size++;
+    }
+
+    Chunk grow() {
+        Chunk c = new Chunk(tail == null ? FIRST_CHUNK : Math.min(MAX_CHUNK, tail.values.length * 2));
+        if (tail == null)
+            head = c;
+        else
+            tail.next = c;
+        return tail = c;
+    }
+
+    /**
+     * Moves the values of another list to the end of this list, by linking
+     * its chunks, leaving the other list empty.
+     */
+    void link(IntList that) {
+        if (that.head == null)
+            return;
+
+        size = Math.addExact(size, that.size);
+        if (tail == null)
+            head = that.head;
+        else
+            tail.next = that.head;
+        tail = that.tail;
+
+        that.head = that.tail = null;
+        that.size = 0;
+    }
+
+    int get(int index) {
+        if (index < 0 || index >= size)
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+
+        Chunk c = head;
+        while (index >= c.n) {
+            index -= c.n;
+            c = c.next;
+        }
+        return c.values[index];
+    }
+
+    void forEach(IntConsumer action) {
+        for (Chunk c = head; c != null; c = c.next) {
+            int[] values = c.values;
+            for (int i = 0, n = c.n; i < n; i++) {
+                action.accept(values[i]);
+            }
+        }
+    }
+
+    int[] toArray() {
+        int[] a = new int[size];
+        int i = 0;
+        for (Chunk c = head; c != null; c = c.next) {
+            System.arraycopy(c.values, 0, a, i, c.n);
+            i += c.n;
+        }
+        return a;
+    }
+
+    Spliterator.OfInt spliterator() {
+        return new Splitter(head, 0, size);
+    }
+
+    IntStream stream() {
+        return StreamSupport.intStream(spliterator(), false);
+    }
+
+    IntStream parallelStream() {
+        return StreamSupport.intStream(spliterator(), true);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(toArray());
+    }
+
+    /**
+     * Traverses a number of values from a position in a chunk, splitting in
+     * half by walking the chain of chunks.
+     */
+    static final class Splitter implements Spliterator.OfInt {
+        Chunk chunk;
+        int index;
+        int remaining;
+
+        Splitter(Chunk chunk, int index, int remaining) {
+            this.chunk = chunk;
+            this.index = index;
+            this.remaining = remaining;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            if (remaining == 0)
+                return false;
+            while (index == chunk.n) {
+                chunk = chunk.next;
+                index = 0;
+            }
+            remaining--;
+            action.accept(chunk.values[index++]);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            Chunk c = chunk;
+            int i = index;
+            int r = remaining;
+            remaining = 0;
+            while (r > 0) {
+                int end = Math.min(c.n, i + r);
+                int[] values = c.values;
+                for (int j = i; j < end; j++) {
+                    action.accept(values[j]);
+                }
+                r -= end - i;
+                c = c.next;
+                i = 0;
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            int half = remaining >>> 1;
+            if (half == 0)
+                return null;
+
+            Splitter prefix = new Splitter(chunk, index, half);
+            int skip = half;
+            while (skip >= chunk.n - index) {
+                skip -= chunk.n - index;
+                chunk = chunk.next;
+                index = 0;
+            }
+            index += skip;
+            remaining -= half;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED;
+        }
+    }
+}
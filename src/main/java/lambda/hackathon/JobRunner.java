@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * Runs jobs, each a {@link Pipeline} of named stages applied to an input, on
+ * a named pool of a fixed number of threads that the runner owns and shuts
+ * down.
+ * <p>
+ * A job runs as a chain of {@code CompletableFuture} stages, each stage
+ * submitted to the pool when the one before completes.  At most
+ * {@code window} jobs are in flight, submitted but not complete; submitting
+ * another blocks until one completes, which pushes back on a producer that
+ * is faster than the pool.  As a job has at most one stage queued at a time,
+ * the queue of the pool is bounded by the window too.
+ * <p>
+ * Cancelling the future of a job stops it at the next stage boundary; a
+ * running stage is not interrupted.  {@link #close} stops accepting jobs,
+ * waits for the jobs in flight to complete and then shuts the pool down,
+ * cancelling the jobs left if they take too long.
+ * <p>
+ * The runner counts jobs, and for each stage the time stages wait for a
+ * thread and the time they run, reported by {@link #stats}.
+ */
+public class JobRunner implements AutoCloseable {
+
+    public static void main(String[] args) throws InterruptedException {
+        Pipeline<Integer, Long> primes = Pipeline
+                .of("generate", (Integer n) -> MillerRabin.oddBigIntegers(n, 64, 128))
+                .then("test", (List<BigInteger> is) -> is.stream()
+                        .filter(i -> MillerRabin.isProbablePrime(i, new MillerRabin.Imperative(), 20))
+                        .count());
+
+        Pipeline<Set<Cell>, Integer> life = Pipeline
+                .of("run", (Set<Cell> world) -> new LifeSparse().step(world, 1000))
+                .then("population", Set::size);
+
+        Pipeline<Path, Integer> words = Pipeline
+                .of("words", (Path p) -> {
+                    try {
+                        return Words.Lambda.processWords(p, false);
+                    }
+                    catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })
+                .then("count", List::size);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        try (JobRunner runner = new JobRunner("workloads", threads, 2 * threads)) {
+            List<CompletableFuture<?>> jobs = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                jobs.add(runner.submit(primes, 100));
+                jobs.add(runner.submit(life, soup(64, i)));
+            }
+            for (String file : args) {
+                jobs.add(runner.submit(words, Paths.get(file)));
+            }
+
+            CompletableFuture.allOf(jobs.toArray(new CompletableFuture<?>[0]))
+                    .handle((v, e) -> null).join();
+            System.out.println(runner.stats());
+        }
+    }
+
+    static Set<Cell> soup(int size, long seed) {
+        Random r = new Random(seed);
+        Set<Cell> world = new HashSet<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (r.nextBoolean())
+                    world.add(Cell.of(x, y));
+            }
+        }
+        return world;
+    }
+
+    /**
+     * A sequence of named stages, each a function of the result of the stage
+     * before, from an input of type {@code I} to a result of type {@code O}.
+     * A pipeline is immutable, so one pipeline can be submitted for many
+     * inputs.
+     */
+    static final class Pipeline<I, O> {
+        final List<Stage> stages;
+
+        Pipeline(List<Stage> stages) {
+            this.stages = stages;
+        }
+
+        static <I, O> Pipeline<I, O> of(String stage, Function<? super I, ? extends O> f) {
+            return new Pipeline<>(Collections.singletonList(new Stage(stage, f)));
+        }
+
+        <R> Pipeline<I, R> then(String stage, Function<? super O, ? extends R> f) {
+            List<Stage> s = new ArrayList<>(stages);
+            s.add(new Stage(stage, f));
+            return new Pipeline<>(Collections.unmodifiableList(s));
+        }
+    }
+
+    static final class Stage {
+        final String name;
+        final Function<Object, Object> f;
+
+        @SuppressWarnings("unchecked")
+        Stage(String name, Function<?, ?> f) {
+            this.name = name;
+            this.f = (Function<Object, Object>) f;
+        }
+    }
+
+    final String name;
+    final int window;
+    final ThreadPoolExecutor executor;
+    // A permit per job that may be in flight
+    final Semaphore inFlight;
+    // The jobs in flight, for cancelling on shutdown
+    final Set<Job<?>> jobs = ConcurrentHashMap.newKeySet();
+    volatile boolean closed;
+
+    final LongAdder submitted = new LongAdder();
+    final LongAdder completed = new LongAdder();
+    final LongAdder failed = new LongAdder();
+    final LongAdder cancelled = new LongAdder();
+    final ConcurrentMap<String, StageMetrics> stages = new ConcurrentHashMap<>();
+
+    /**
+     * @param name the name of the runner, and the prefix of its threads' names
+     * @param threads the number of threads
+     * @param window the most jobs in flight
+     */
+    JobRunner(String name, int threads, int window) {
+        if (threads <= 0 || window <= 0)
+            throw new IllegalArgumentException();
+
+        this.name = name;
+        this.window = window;
+        this.inFlight = new Semaphore(window);
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                                               new ArrayBlockingQueue<>(window), r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Submits a job, waiting while the window of jobs in flight is full.
+     *
+     * @return the result of the job, which completes exceptionally if a
+     *         stage throws, and may be cancelled
+     * @throws RejectedExecutionException if the runner is closed
+     */
+    <I, O> CompletableFuture<O> submit(Pipeline<I, O> pipeline, I input) throws InterruptedException {
+        if (closed)
+            throw new RejectedExecutionException(name + " is closed");
+        inFlight.acquire();
+        if (closed) {
+            inFlight.release();
+            throw new RejectedExecutionException(name + " is closed");
+        }
+
+        Job<O> job = new Job<>();
+        jobs.add(job);
+        submitted.increment();
+
+        CompletableFuture<Object> f = CompletableFuture.completedFuture(input);
+        for (Stage s : pipeline.stages) {
+            f = f.thenApplyAsync(x -> job.run(s, x), executor);
+        }
+        f.whenComplete(job::done);
+        return job.result;
+    }
+
+    final class Job<O> {
+        final CompletableFuture<O> result = new CompletableFuture<>();
+        // When the next stage became ready to run
+        volatile long ready = System.nanoTime();
+
+        Object run(Stage s, Object x) {
+            if (result.isDone())
+                throw new CancellationException();
+
+            long start = System.nanoTime();
+            try {
+                return s.f.apply(x);
+            }
+            finally {
+                long end = System.nanoTime();
+                metrics(s.name).record(start - ready, end - start);
+                ready = end;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        void done(Object value, Throwable e) {
+            // Done once, by the last stage or by shutdownNow
+            if (!jobs.remove(this))
+                return;
+
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause == null ? result.complete((O) value) : result.completeExceptionally(cause))
+                (cause == null ? completed : failed).increment();
+            else
+                cancelled.increment();
+            inFlight.release();
+        }
+    }
+
+    StageMetrics metrics(String stage) {
+        StageMetrics m = stages.get(stage);
+        if (m == null) {
+            StageMetrics nm = new StageMetrics();
+            m = stages.putIfAbsent(stage, nm);
+            if (m == null)
+                m = nm;
+        }
+        return m;
+    }
+
+    /**
+     * Returns the number of jobs submitted and not yet complete.
+     */
+    int inFlight() {
+        return window - inFlight.availablePermits();
+    }
+
+    /**
+     * Returns the number of stages waiting for a thread.
+     */
+    int queueDepth() {
+        return executor.getQueue().size();
+    }
+
+    Stats stats() {
+        Map<String, StageStats> s = new TreeMap<>();
+        stages.forEach((stage, m) -> s.put(stage, m.stats(stage)));
+        return new Stats(name, inFlight(), queueDepth(),
+                         submitted.sum(), completed.sum(), failed.sum(), cancelled.sum(), s);
+    }
+
+    /**
+     * Stops accepting jobs and waits up to a time for the jobs in flight to
+     * complete, then shuts the pool down, waiting for it in what is left of
+     * the time.
+     *
+     * @return true if all jobs completed, false if jobs were cancelled
+     */
+    boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        closed = true;
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean drained = inFlight.tryAcquire(window, timeout, unit);
+        if (drained) {
+            inFlight.release(window);
+            executor.shutdown();
+        }
+        else {
+            shutdownNow();
+        }
+        executor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        return drained;
+    }
+
+    /**
+     * Stops accepting jobs, cancels the jobs in flight, and interrupts the
+     * running stages.
+     */
+    void shutdownNow() {
+        closed = true;
+        for (Job<?> job : jobs) {
+            // Its queued stages are dropped with the pool's queue, and would
+            // never reach done to free its place in the window
+            job.result.cancel(true);
+            job.done(null, new CancellationException());
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Shuts down, waiting up to a minute for the jobs in flight to complete.
+     */
+    @Override
+    public void close() {
+        try {
+            shutdown(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class StageMetrics {
+        final LongAdder count = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder runNanos = new LongAdder();
+        final LongAccumulator maxRunNanos = new LongAccumulator(Math::max, 0);
+
+        void record(long wait, long run) {
+            count.increment();
+            waitNanos.add(wait);
+            runNanos.add(run);
+            maxRunNanos.accumulate(run);
+        }
+
+        StageStats stats(String stage) {
+            long n = count.sum();
+            return new StageStats(stage, n,
+                                  n == 0 ? 0 : waitNanos.sum() / 1e6 / n,
+                                  n == 0 ? 0 : runNanos.sum() / 1e6 / n,
+                                  maxRunNanos.get() / 1e6);
+        }
+    }
+
+    static final class StageStats {
+        final String stage;
+        final long count;
+        // Mean time from being ready to run to starting on a thread
+        final double meanWaitMillis;
+        final double meanRunMillis;
+        final double maxRunMillis;
+
+        StageStats(String stage, long count, double meanWaitMillis, double meanRunMillis, double maxRunMillis) {
+            this.stage = stage;
+            this.count = count;
+            this.meanWaitMillis = meanWaitMillis;
+            this.meanRunMillis = meanRunMillis;
+            this.maxRunMillis = maxRunMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[stage = %s, count = %d, mean wait = %.2f ms, mean run = %.2f ms, max run = %.2f ms]",
+                                 stage, count, meanWaitMillis, meanRunMillis, maxRunMillis);
+        }
+    }
+
+    static final class Stats {
+        final String name;
+        final int inFlight;
+        final int queueDepth;
+        final long submitted;
+        final long completed;
+        final long failed;
+        final long cancelled;
+        final Map<String, StageStats> stages;
+
+        Stats(String name, int inFlight, int queueDepth,
+              long submitted, long completed, long failed, long cancelled, Map<String, StageStats> stages) {
+            this.name = name;
+            this.inFlight = inFlight;
+            this.queueDepth = queueDepth;
+            this.submitted = submitted;
+            this.completed = completed;
+            this.failed = failed;
+            this.cancelled = cancelled;
+            this.stages = stages;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(String.format(
+                    "[name = %s, in flight = %d, queue depth = %d, submitted = %d, completed = %d, failed = %d, cancelled = %d]",
+                    name, inFlight, queueDepth, submitted, completed, failed, cancelled));
+            for (StageStats s : stages.values()) {
+                sb.append("\n  ").append(s);
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import static java.util.Comparator.comparing;
+
+/**
+ * Sorts by string keys, in the order of the comparator chain
+ * {@code comparing(keys[0]).thenComparing(keys[1])...}, extracting each key
+ * once per element rather than once per comparison.
+ * <p>
+ * The sort decorates, sorts and undecorates.  The keys of each element are
+ * extracted into arrays, and the first chars of the first key are packed,
+ * with as few bits per char as the largest char needs, into the high bits
+ * of a {@code long} whose low bits are the index of the element.  The packed
+ * keys are sorted with {@code Arrays.parallelSort}, a primitive sort.  The
+ * chars order keys as the full keys do wherever they differ, so only runs of
+ * elements with equal chars are left to sort, by packing and sorting their
+ * next chars, or their next key once the key has ended, most significant
+ * first.  Short runs are sorted by comparing their keys.  As the index
+ * breaks ties between equal chars, elements with equal keys keep their
+ * order, just as with {@code List.sort}.
+ * <p>
+ * https://en.wikipedia.org/wiki/Schwartzian_transform
+ */
+public class KeySort {
+
+    public static void main(String[] args) {
+        Random r = new Random(42);
+        String[] lastNames = names(r, 50_000), firstNames = names(r, 5_000);
+        List<String[]> people = new ArrayList<>();
+        for (int i = 0; i < 2_000_000; i++) {
+            people.add(new String[] {lastNames[r.nextInt(lastNames.length)],
+                                     firstNames[r.nextInt(firstNames.length)]});
+        }
+
+        for (int i = 0; i < 5; i++) {
+            List<String[]> byComparator = new ArrayList<>(people);
+            long start = System.nanoTime();
+            byComparator.sort(comparing((String[] p) -> p[0]).thenComparing(p -> p[1]));
+            long middle = System.nanoTime();
+            List<String[]> byKeys = sorted(people, p -> p[0], p -> p[1]);
+            long end = System.nanoTime();
+
+            System.out.printf("comparator %.1f ms, keys %.1f ms, same order %b%n",
+                              (middle - start) / 1e6, (end - middle) / 1e6, byComparator.equals(byKeys));
+        }
+    }
+
+    static String[] names(Random r, int n) {
+        String[] names = new String[n];
+        for (int i = 0; i < n; i++) {
+            StringBuilder sb = new StringBuilder().append((char) ('A' + r.nextInt(26)));
+            for (int l = 3 + r.nextInt(7); l > 0; l--) {
+                sb.append((char) ('a' + r.nextInt(26)));
+            }
+            names[i] = sb.toString();
+        }
+        return names;
+    }
+
+    // Sort the runs of equal prefixes in parallel beyond this many elements
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    // Ranges no longer than this are sorted by insertion
+    static final int INSERTION_THRESHOLD = 16;
+
+    /**
+     * Sorts a list in place by its keys.
+     */
+    // Passing the keys on is safe, sorted only reads them
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    static <T> void sort(List<T> list, Function<? super T, String>... keys) {
+        List<T> sorted = sorted(list, keys);
+        for (int i = 0; i < sorted.size(); i++) {
+            list.set(i, sorted.get(i));
+        }
+    }
+
+    /**
+     * Returns a new list of the elements sorted by their keys.
+     */
+    @SafeVarargs
+    static <T> List<T> sorted(List<? extends T> list, Function<? super T, String>... keys) {
+        if (keys.length == 0)
+            throw new IllegalArgumentException("No keys");
+
+        int n = list.size();
+        List<T> sorted = new ArrayList<>(n);
+        if (n < 2) {
+            sorted.addAll(list);
+            return sorted;
+        }
+
+        // Decorate
+        String[][] k = new String[keys.length][n];
+        for (int i = 0; i < n; i++) {
+            T t = list.get(i);
+            for (int j = 0; j < keys.length; j++) {
+                k[j][i] = keys[j].apply(t);
+            }
+        }
+
+        // Sort
+        int[] order = order(k);
+
+        // Undecorate
+        for (int i : order) {
+            sorted.add(list.get(i));
+        }
+        return sorted;
+    }
+
+    /**
+     * Returns the indexes of the elements in the order of their keys,
+     * {@code keys[j][i]} being key j of element i.
+     */
+    static int[] order(String[][] keys) {
+        int n = keys[0].length;
+
+        // The fewest bits per char that hold every char plus one, zero
+        // marking the end of a key
+        int maxChar = 0;
+        for (String[] k : keys) {
+            for (String s : k) {
+                for (int i = 0; i < s.length(); i++) {
+                    maxChar = Math.max(maxChar, s.charAt(i));
+                }
+            }
+        }
+        int charBits = bits(maxChar + 1);
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        sort(order, 0, n, keys, 0, 0, charBits, n > PARALLEL_THRESHOLD);
+        return order;
+    }
+
+    static int bits(int x) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(x));
+    }
+
+    /**
+     * Sorts a range of indexes whose keys before {@code level} are equal, as
+     * are the first {@code offset} chars of key {@code level}.
+     * <p>
+     * The next chars of the key that fit are packed, with the position of
+     * each index in the range, into a {@code long}, and sorted.  Each run of
+     * equal chars is then sorted by the chars after them, or if the key ended
+     * within them, by the next key.
+     */
+    static void sort(int[] order, int from, int to, String[][] keys,
+                     int level, int offset, int charBits, boolean parallel) {
+        int n = to - from;
+        if (n < 2 || level == keys.length)
+            return;
+        if (n <= INSERTION_THRESHOLD) {
+            insertionSort(order, from, to, keys, level);
+            return;
+        }
+
+        String[] k = keys[level];
+        int indexBits = bits(n - 1);
+        int chars = (64 - indexBits) / charBits;
+        long charMask = (1L << charBits) - 1;
+        long indexMask = (1L << indexBits) - 1;
+
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            // Flip the sign bit, so that a signed sort is an unsigned sort
+            packed[i] = (prefix(k[order[from + i]], offset, chars, charBits) << indexBits | i) ^ Long.MIN_VALUE;
+        }
+        if (parallel)
+            Arrays.parallelSort(packed);
+        else
+            Arrays.sort(packed);
+
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++) {
+            sorted[i] = order[from + (int) (packed[i] & indexMask)];
+        }
+        System.arraycopy(sorted, 0, order, from, n);
+
+        // The runs of equal chars, as pairs of start and end
+        IntList runs = new IntList();
+        for (int i = 0, j; i < n; i = j) {
+            long chunk = packed[i] >>> indexBits;
+            for (j = i + 1; j < n && packed[j] >>> indexBits == chunk; j++) {
+            }
+            if (j - i > 1) {
+                runs.add(i);
+                runs.add(j);
+            }
+        }
+
+        int[] bounds = runs.toArray();
+        IntStream rs = IntStream.range(0, bounds.length / 2);
+        if (parallel)
+            rs = rs.parallel();
+        rs.forEach(r -> {
+            int start = bounds[2 * r], end = bounds[2 * r + 1];
+            boolean ended = ((packed[start] >>> indexBits) & charMask) == 0;
+            sort(order, from + start, from + end, keys,
+                 ended ? level + 1 : level, ended ? 0 : offset + chars, charBits, false);
+        });
+    }
+
+    /**
+     * Returns {@code chars} chars of a string from an offset, each char plus
+     * one taking {@code charBits} bits, padded with zeros.
+     */
+    static long prefix(String s, int offset, int chars, int charBits) {
+        long p = 0;
+        for (int i = 0; i < chars; i++) {
+            int j = offset + i;
+            p = p << charBits | (j < s.length() ? s.charAt(j) + 1 : 0);
+        }
+        return p;
+    }
+
+    /**
+     * Sorts a small range of indexes stably by comparing their keys from
+     * {@code level}.
+     */
+    static void insertionSort(int[] order, int from, int to, String[][] keys, int level) {
+        for (int i = from + 1; i < to; i++) {
+            int x = order[i];
+            int j = i - 1;
+            for (; j >= from && compare(order[j], x, keys, level) > 0; j--) {
+                order[j + 1] = order[j];
+            }
+            order[j + 1] = x;
+        }
+    }
+
+    static int compare(int x, int y, String[][] keys, int level) {
+        for (int l = level; l < keys.length; l++) {
+            int c = keys[l][x].compareTo(keys[l][y]);
+            if (c != 0)
+                return c;
+        }
+        return 0;
+    }
+}
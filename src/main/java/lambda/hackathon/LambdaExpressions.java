@@ -31,7 +31,6 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ForkJoinPool;
 import java.util.function.BiFunction;
 import java.util.function.BinaryOperator;
 import java.util.function.Function;
@@ -144,9 +143,14 @@ public class LambdaExpressions {
             Function<ExecutorService, Function<Runnable, CompletableFuture<Void>>>
                     runServiceAsyncer = es -> r -> CompletableFuture.runAsync(r, es);
 
-            ExecutorService es = new ForkJoinPool();
-            Function<Runnable, CompletableFuture<Void>> runAsync = runServiceAsyncer.apply(es);
-            CompletableFuture<Void> cf = runAsync.apply(() -> System.out.println("RUN ME"));
+            // The runner owns its pool, and shuts it down on leaving the
+            // block, where a bare new ForkJoinPool() would never be
+            try (JobRunner runner = new JobRunner("lambda-expressions", 1, 1)) {
+                ExecutorService es = runner.executor;
+                Function<Runnable, CompletableFuture<Void>> runAsync = runServiceAsyncer.apply(es);
+                CompletableFuture<Void> cf = runAsync.apply(() -> System.out.println("RUN ME"));
+                cf.join();
+            }
 
 
             // See Y-combinators (which may make some of the Lamba
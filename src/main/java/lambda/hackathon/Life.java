@@ -84,6 +84,50 @@ public class Life {
         }
     }
 
+    /**
+     * Advances a world, the set of live cells, by one generation.
+     * <p>
+     * {@code Imperative::step} and {@code Lambda::step} are engines, as are
+     * the faster engines that keep the world in their own representation and
+     * convert from and to a set of cells at the edges.
+     */
+    @FunctionalInterface
+    interface Engine {
+        Set<Cell> step(Set<Cell> world);
+
+        default Set<Cell> step(Set<Cell> world, long generations) {
+            for (long g = 0; g < generations; g++) {
+                world = step(world);
+            }
+            return world;
+        }
+    }
+
+    /**
+     * Accepts live cells one at a time, so cells can pass between pattern
+     * files and an engine's own storage without a {@code Set<Cell>}.
+     */
+    @FunctionalInterface
+    interface CellConsumer {
+        void accept(int x, int y);
+    }
+
+    /**
+     * Supplies the live cells of a world, in no particular order.
+     */
+    @FunctionalInterface
+    interface CellSource {
+        void forEach(CellConsumer action);
+
+        static CellSource of(Set<Cell> world) {
+            return action -> {
+                for (Cell c : world) {
+                    action.accept(c.x, c.y);
+                }
+            };
+        }
+    }
+
     static class Imperative {
 
         static List<Cell> neighbourDeltas() {
@@ -108,6 +152,10 @@ public class Life {
         static final List<Cell> NEIGHBOUR_DELTAS = neighbourDeltas();
 
         static Set<Cell> step(Set<Cell> world) {
+            return step(world, LifeRule.CONWAY);
+        }
+
+        static Set<Cell> step(Set<Cell> world, LifeRule rule) {
             // Calculate the frequencies of neighbouring cells
             Map<Cell, Integer> fs = new HashMap<>();
             for (Cell c : world) {
@@ -124,14 +172,19 @@ public class Life {
 
             Set<Cell> newWorld = new HashSet<>();
             for (Map.Entry<Cell, Integer> e : fs.entrySet()) {
-                //     Any live cell with fewer than two live neighbours dies, as if caused by under-population.
-                // [*] Any live cell with two or three live neighbours lives on to the next generation.
-                //     Any live cell with more than three live neighbours dies, as if by overcrowding.
-                // [*] Any dead cell with exactly three live neighbours becomes a live cell, as if by reproduction.
-                if (e.getValue() == 3 || (e.getValue() == 2 && world.contains(e.getKey()))) {
+                // A live cell survives if its count of live neighbours is in the
+                // rule's survival set, a dead cell is born if it is in the birth set
+                if (rule.next(world.contains(e.getKey()), e.getValue())) {
                     newWorld.add(e.getKey());
                 }
             }
+            if (rule.survivesAlone()) {
+                for (Cell c : world) {
+                    if (!fs.containsKey(c)) {
+                        newWorld.add(c);
+                    }
+                }
+            }
             return newWorld;
         }
 
@@ -178,18 +231,24 @@ public class Life {
         }
 
         static Set<Cell> step(Set<Cell> world) {
+            return step(world, LifeRule.CONWAY);
+        }
+
+        static Set<Cell> step(Set<Cell> world, LifeRule rule) {
             // Calculate the frequencies of neighbouring cells
             Map<Cell, Long> fs = neighbours(world.stream()).
                     collect(toFrequencies());
 
-            return fs.entrySet().stream().
-                    //     Any live cell with fewer than two live neighbours dies, as if caused by under-population.
-                    // [*] Any live cell with two or three live neighbours lives on to the next generation.
-                    //     Any live cell with more than three live neighbours dies, as if by overcrowding.
-                    // [*] Any dead cell with exactly three live neighbours becomes a live cell, as if by reproduction.
-                    filter(e -> e.getValue() == 3 || (e.getValue() == 2 && world.contains(e.getKey()))).
+            Stream<Cell> alone = rule.survivesAlone()
+                                 ? world.stream().filter(c -> !fs.containsKey(c))
+                                 : Stream.empty();
+
+            return Stream.concat(alone, fs.entrySet().stream().
+                    // A live cell survives if its count of live neighbours is in the
+                    // rule's survival set, a dead cell is born if it is in the birth set
+                    filter(e -> rule.next(world.contains(e.getKey()), e.getValue().intValue())).
                     // Map from Stream<Entry<Cell, Integer>> to Stream<Cell>
-                    map(e -> e.getKey()).
+                    map(e -> e.getKey())).
                     // Collect to a set
                     collect(toSet());
         }
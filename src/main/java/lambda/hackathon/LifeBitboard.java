@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * A dense Life grid of {@code width x height} cells, each row held as a
+ * bitboard of {@code long} words, 64 cells to a word.
+ * <p>
+ * The eight neighbours of 64 cells are counted at once with a tree of
+ * bit-parallel full adders, producing the count as four bit planes, from
+ * which the next generation is computed by the bit-sliced terms of the
+ * {@link LifeRule}, see {@link LifeRule#evolve}.  No
+ * objects are allocated per generation; the current and next generations
+ * are two arrays swapped after each step.
+ * <p>
+ * The grid is either bounded, where cells beyond the edges are dead, or
+ * toroidal, where the edges wrap around.  Cell {@code (x, y)} of a world is
+ * held at column {@code x - originX} and row {@code y - originY}.
+ */
+public class LifeBitboard {
+
+    public static void main(String[] args) {
+        Set<Cell> world = new HashSet<>(Arrays.asList(Cell.of(1, 2),
+                                                      Cell.of(1, 1),
+                                                      Cell.of(1, 0)));
+
+        LifeBitboard b = of(world, 0, -1, 4, 4, true);
+        for (int i = 0; i < 5; i++) {
+            System.out.println(b.toCells());
+            b.step();
+        }
+    }
+
+    /**
+     * Steps a world on an unbounded plane, using a bounded grid covering the
+     * world's bounding box plus a margin of one cell, so the result is exactly
+     * that of {@link Life.Imperative#step}.
+     */
+    static Set<Cell> step(Set<Cell> world) {
+        if (world.isEmpty())
+            return new HashSet<>();
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (Cell c : world) {
+            minX = Math.min(minX, c.x);
+            minY = Math.min(minY, c.y);
+            maxX = Math.max(maxX, c.x);
+            maxY = Math.max(maxY, c.y);
+        }
+
+        LifeBitboard b = of(world, minX - 1, minY - 1, maxX - minX + 3, maxY - minY + 3, false);
+        b.step();
+        return b.toCells();
+    }
+
+    /**
+     * Steps a world a number of generations on one grid, covering the
+     * world's bounding box plus a margin as wide as the cells can travel,
+     * and converts it back to cells once.
+     */
+    static Set<Cell> step(Set<Cell> world, long generations) {
+        if (world.isEmpty())
+            return new HashSet<>();
+
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+        for (Cell c : world) {
+            minX = Math.min(minX, c.x);
+            minY = Math.min(minY, c.y);
+            maxX = Math.max(maxX, c.x);
+            maxY = Math.max(maxY, c.y);
+        }
+
+        // Cells travel at most one cell per generation
+        long margin = generations + 1;
+        long width = maxX - minX + 2 * margin + 1;
+        long height = maxY - minY + 2 * margin + 1;
+        if (minX - margin < Integer.MIN_VALUE || minY - margin < Integer.MIN_VALUE ||
+            width > Integer.MAX_VALUE || height > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("World is too large");
+
+        LifeBitboard b = of(world, (int) (minX - margin), (int) (minY - margin), (int) width, (int) height, false);
+        for (long g = 0; g < generations; g++) {
+            b.step();
+        }
+        return b.toCells();
+    }
+
+    static LifeBitboard of(Set<Cell> world, int originX, int originY, int width, int height, boolean toroidal) {
+        return of(world, originX, originY, width, height, toroidal, LifeRule.CONWAY);
+    }
+
+    static LifeBitboard of(Set<Cell> world, int originX, int originY, int width, int height, boolean toroidal,
+                           LifeRule rule) {
+        LifeBitboard b = new LifeBitboard(originX, originY, width, height, toroidal, rule);
+        for (Cell c : world) {
+            b.set(c.x, c.y, true);
+        }
+        return b;
+    }
+
+    final int originX;
+    final int originY;
+    final int width;
+    final int height;
+    final boolean toroidal;
+    final LifeRule rule;
+    // Words per row
+    final int words;
+    // Mask of the used bits of the last word of a row
+    final long lastMask;
+
+    // Row y is words [y * words, (y + 1) * words)
+    long[] cells;
+    long[] next;
+
+    LifeBitboard(int originX, int originY, int width, int height, boolean toroidal) {
+        this(originX, originY, width, height, toroidal, LifeRule.CONWAY);
+    }
+
+    LifeBitboard(int originX, int originY, int width, int height, boolean toroidal, LifeRule rule) {
+        if (width <= 0 || height <= 0)
+            throw new IllegalArgumentException("Empty grid");
+
+        this.originX = originX;
+        this.originY = originY;
+        this.width = width;
+        this.height = height;
+        this.toroidal = toroidal;
+        this.rule = rule;
+        this.words = (width + 63) >>> 6;
+        this.lastMask = -1L >>> (64 * words - width);
+        this.cells = new long[words * height];
+        this.next = new long[words * height];
+    }
+
+    boolean get(int x, int y) {
+        int c = x - originX, r = y - originY;
+        if (c < 0 || c >= width || r < 0 || r >= height)
+            return false;
+        return (cells[r * words + (c >>> 6)] & (1L << c)) != 0;
+    }
+
+    void set(int x, int y, boolean alive) {
+        int c = x - originX, r = y - originY;
+        if (c < 0 || c >= width || r < 0 || r >= height)
+            throw new IndexOutOfBoundsException(Cell.of(x, y) + " is outside of the grid");
+
+        if (alive)
+            cells[r * words + (c >>> 6)] |= 1L << c;
+        else
+            cells[r * words + (c >>> 6)] &= ~(1L << c);
+    }
+
+    long population() {
+        long n = 0;
+        for (long w : cells) {
+            n += Long.bitCount(w);
+        }
+        return n;
+    }
+
+    Set<Cell> toCells() {
+        Set<Cell> world = new HashSet<>();
+        forEach((x, y) -> world.add(Cell.of(x, y)));
+        return world;
+    }
+
+    void forEach(Life.CellConsumer action) {
+        for (int r = 0; r < height; r++) {
+            for (int i = 0; i < words; i++) {
+                long w = cells[r * words + i];
+                while (w != 0) {
+                    int b = Long.numberOfTrailingZeros(w);
+                    action.accept(originX + (i << 6) + b, originY + r);
+                    w &= w - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Advances the grid by one generation.
+     */
+    void step() {
+        for (int r = 0; r < height; r++) {
+            int above = r - 1, below = r + 1;
+            if (toroidal) {
+                above = above < 0 ? height - 1 : above;
+                below = below == height ? 0 : below;
+            }
+            stepRow(above >= 0 && above < height ? above * words : -1,
+                    r * words,
+                    below >= 0 && below < height ? below * words : -1,
+                    r * words);
+        }
+
+        long[] t = cells;
+        cells = next;
+        next = t;
+    }
+
+    /**
+     * Computes the next generation of the row at offset {@code row}, given the
+     * offsets of the rows above and below, or -1 if there is no such row.
+     */
+    void stepRow(int above, int row, int below, int to) {
+        for (int i = 0; i < words; i++) {
+            long a = word(above, i), aw = west(above, i), ae = east(above, i);
+            long w = west(row, i), e = east(row, i);
+            long b = word(below, i), bw = west(below, i), be = east(below, i);
+
+            long n = rule.evolve(aw, a, ae, w, cells[row + i], e, bw, b, be);
+            next[to + i] = i == words - 1 ? n & lastMask : n;
+        }
+    }
+
+    long word(int row, int i) {
+        return row < 0 ? 0 : cells[row + i];
+    }
+
+    /**
+     * Returns the word whose bit {@code b} is the cell west of bit {@code b}
+     * of word {@code i}.
+     */
+    long west(int row, int i) {
+        if (row < 0)
+            return 0;
+
+        long w = cells[row + i] << 1;
+        if (i > 0)
+            w |= cells[row + i - 1] >>> 63;
+        else if (toroidal)
+            w |= (cells[row + words - 1] >>> ((width - 1) & 63)) & 1;
+        return w;
+    }
+
+    /**
+     * Returns the word whose bit {@code b} is the cell east of bit {@code b}
+     * of word {@code i}.
+     */
+    long east(int row, int i) {
+        if (row < 0)
+            return 0;
+
+        long w = cells[row + i] >>> 1;
+        if (i < words - 1)
+            w |= cells[row + i + 1] << 63;
+        else if (toroidal)
+            w |= (cells[row] & 1) << ((width - 1) & 63);
+        return w;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * A Life engine that detects when a world becomes periodic, a still life,
+ * an oscillator or a spaceship, and then jumps to the requested generation
+ * arithmetically rather than simulating every generation.
+ * <p>
+ * Each generation of a {@link LifeSparse} world is hashed Zobrist-style, as
+ * the sum of a scrambled key per live cell, with cells taken relative to the
+ * top left corner of the bounding box so the hash is the same wherever the
+ * world is.  The hashes of a bounded number of recent generations are kept;
+ * when a generation's hash and population match an earlier one, the world is
+ * a candidate of that period and translation.  The candidate is confirmed
+ * exactly by comparing the world one period later with a copy of it, so a
+ * hash collision costs one period of simulation and nothing more.
+ * <p>
+ * Only worlds that are periodic as a whole are detected, so a pattern that
+ * settles into independent parts, such as gliders escaping from debris, is
+ * simulated as usual.
+ */
+public class LifeCycles implements Life.Engine {
+
+    public static void main(String[] args) {
+        Set<Cell> glider = new HashSet<>(Arrays.asList(Cell.of(1, 0), Cell.of(2, 1),
+                                                       Cell.of(0, 2), Cell.of(1, 2),
+                                                       Cell.of(2, 2)));
+        Set<Cell> blinker = new HashSet<>(Arrays.asList(Cell.of(1, 2),
+                                                        Cell.of(1, 1),
+                                                        Cell.of(1, 0)));
+
+        for (Set<Cell> world : Arrays.asList(glider, blinker)) {
+            LifeCycles c = new LifeCycles();
+            System.out.println(c.step(world, 1_000_000_001L) + " " + c.cycle);
+        }
+    }
+
+    /**
+     * A periodic world, which is the same every {@code period} generations
+     * from {@code generation}, moved by {@code (dx, dy)}.
+     */
+    static final class Cycle {
+        final long generation;
+        final int period;
+        final int dx;
+        final int dy;
+
+        Cycle(long generation, int period, int dx, int dy) {
+            this.generation = generation;
+            this.period = period;
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        @Override
+        public String toString() {
+            String kind = dx != 0 || dy != 0 ? "spaceship" : period == 1 ? "still life" : "oscillator";
+            return String.format("[%s, period = %d, translation = (%d, %d), from generation %d]",
+                                 kind, period, dx, dy, generation);
+        }
+    }
+
+    final int history;
+    final LifeSparse sparse;
+    long generation;
+
+    // A ring of the hashes, populations and bounding box corners of the most
+    // recent generations, generation g being at index g % history
+    final long[] hashes;
+    final long[] populations;
+    final int[] minXs;
+    final int[] minYs;
+    long first;
+
+    // A cycle to be confirmed, and a copy of the world when it was found
+    Cycle candidate;
+    long[] snapshot;
+
+    Cycle cycle;
+
+    LifeCycles() {
+        this(1024);
+    }
+
+    /**
+     * @param history the number of generations whose hashes are kept, and so
+     *        the longest period detected
+     */
+    LifeCycles(int history) {
+        this(history, LifeRule.CONWAY);
+    }
+
+    LifeCycles(int history, LifeRule rule) {
+        if (history <= 0)
+            throw new IllegalArgumentException();
+
+        this.history = history;
+        this.sparse = new LifeSparse(rule);
+        this.hashes = new long[history];
+        this.populations = new long[history];
+        this.minXs = new int[history];
+        this.minYs = new int[history];
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world) {
+        return step(world, 1);
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world, long generations) {
+        load(world);
+        advance(generations);
+        return sparse.toCells();
+    }
+
+    void load(Set<Cell> world) {
+        sparse.load(world);
+        generation = 0;
+        first = 0;
+        candidate = null;
+        snapshot = null;
+        cycle = null;
+    }
+
+    /**
+     * Advances the world by a number of generations, jumping over whole
+     * periods once the world is known to be periodic.
+     */
+    void advance(long generations) {
+        long end = generation + generations;
+        while (cycle == null && generation < end) {
+            observe();
+            if (cycle == null) {
+                sparse.step();
+                generation++;
+            }
+        }
+        if (cycle == null)
+            return;
+
+        // Jump over whole periods, moving the world by their translation
+        long periods = (end - generation) / cycle.period;
+        translate(Math.multiplyExact(periods, cycle.dx), Math.multiplyExact(periods, cycle.dy));
+        generation += periods * cycle.period;
+
+        while (generation < end) {
+            sparse.step();
+            generation++;
+        }
+    }
+
+    /**
+     * Records the hash of the current generation, and looks for an earlier
+     * generation with the same hash.
+     */
+    void observe() {
+        LongHashSet live = sparse.live;
+        int[] min = {Integer.MAX_VALUE, Integer.MAX_VALUE};
+        live.forEach(c -> {
+            min[0] = Math.min(min[0], LifeSparse.x(c));
+            min[1] = Math.min(min[1], LifeSparse.y(c));
+        });
+        long[] sum = {0};
+        live.forEach(c -> sum[0] += key(LifeSparse.x(c) - min[0], LifeSparse.y(c) - min[1]));
+        long hash = sum[0];
+        long population = live.size();
+
+        if (candidate != null && generation == candidate.generation + candidate.period) {
+            if (matches(snapshot, candidate.dx, candidate.dy)) {
+                cycle = candidate;
+                return;
+            }
+            candidate = null;
+            snapshot = null;
+        }
+
+        if (candidate == null) {
+            // The most recent match has the shortest period
+            for (long g = generation - 1; g >= first; g--) {
+                int i = (int) (g % history);
+                if (hashes[i] == hash && populations[i] == population) {
+                    candidate = new Cycle(generation, (int) (generation - g),
+                                          population == 0 ? 0 : min[0] - minXs[i],
+                                          population == 0 ? 0 : min[1] - minYs[i]);
+                    snapshot = live.toArray();
+                    break;
+                }
+            }
+        }
+
+        int i = (int) (generation % history);
+        hashes[i] = hash;
+        populations[i] = population;
+        minXs[i] = min[0];
+        minYs[i] = min[1];
+        first = Math.max(first, generation - history + 1);
+    }
+
+    /**
+     * Returns the key of a cell relative to the bounding box, scrambled with
+     * the finaliser of MurmurHash3 so the sum of keys is well distributed.
+     */
+    static long key(int x, int y) {
+        long k = LifeSparse.pack(x, y);
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Returns true if the world is the earlier world, moved by
+     * {@code (dx, dy)}.
+     */
+    boolean matches(long[] earlier, int dx, int dy) {
+        if (earlier.length != sparse.live.size())
+            return false;
+        for (long c : earlier) {
+            if (!sparse.live.contains(LifeSparse.pack(LifeSparse.x(c) + dx, LifeSparse.y(c) + dy)))
+                return false;
+        }
+        return true;
+    }
+
+    void translate(long dx, long dy) {
+        if (dx == 0 && dy == 0)
+            return;
+
+        long[] cells = sparse.live.toArray();
+        sparse.live.clear();
+        for (long c : cells) {
+            long x = LifeSparse.x(c) + dx, y = LifeSparse.y(c) + dy;
+            if (x != (int) x || y != (int) y)
+                throw new ArithmeticException("World moves beyond the range of cells");
+            sparse.live.add(LifeSparse.pack((int) x, (int) y));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * The generations of a world as a stream, like
+ * {@code Stream.iterate(world, Lambda::step)} but without a new world per
+ * generation.
+ * <p>
+ * The generations are those of a {@link LifeSparse}, which owns the live set
+ * and the next live set, swapping them after each step.  Every element of
+ * the stream is the same read-only {@link View} of the current generation,
+ * valid until the stream advances to the next generation.  A consumer that
+ * needs a generation beyond that must copy it, for example with
+ * {@link View#toCells}.  Once the live sets have grown to fit the world,
+ * advancing allocates nothing, so {@code limit(n)} and {@code forEach} run
+ * in constant memory.
+ * <p>
+ * The stream is infinite and sequential, as each generation depends on the
+ * one before.
+ */
+public class LifeGenerations implements Spliterator<LifeGenerations.View> {
+
+    public static void main(String[] args) {
+        // Initial state, a blinker!
+        Set<Cell> world = new HashSet<>(Arrays.asList(Cell.of(1, 2),
+                                                      Cell.of(1, 1),
+                                                      Cell.of(1, 0)));
+
+        // Iterate for 5 generations printing out each generation
+        stream(world).limit(5).
+                forEach(System.out::println);
+    }
+
+    static Stream<View> stream(Set<Cell> world) {
+        return stream(world, LifeRule.CONWAY);
+    }
+
+    static Stream<View> stream(Set<Cell> world, LifeRule rule) {
+        LifeSparse s = new LifeSparse(rule);
+        s.load(world);
+        return StreamSupport.stream(new LifeGenerations(s), false);
+    }
+
+    final LifeSparse sparse;
+    final View view = new View();
+    // The generation of the view, -1 before the first advance
+    long generation = -1;
+
+    LifeGenerations(LifeSparse sparse) {
+        this.sparse = sparse;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super View> action) {
+        if (generation >= 0)
+            sparse.step();
+        generation++;
+        action.accept(view);
+        return true;
+    }
+
+    @Override
+    public Spliterator<View> trySplit() {
+        return null;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * A read-only view of the current generation.
+     */
+    final class View implements Life.CellSource {
+
+        long generation() {
+            return generation;
+        }
+
+        long population() {
+            return sparse.population();
+        }
+
+        boolean contains(int x, int y) {
+            return sparse.live.contains(LifeSparse.pack(x, y));
+        }
+
+        @Override
+        public void forEach(Life.CellConsumer action) {
+            sparse.forEach(action);
+        }
+
+        /**
+         * Returns a copy of the generation, which remains valid after the
+         * view advances.
+         */
+        Set<Cell> toCells() {
+            return sparse.toCells();
+        }
+
+        @Override
+        public String toString() {
+            return toCells().toString();
+        }
+    }
+}
@@ -0,0 +1,547 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import lambda.hackathon.Life.CellConsumer;
+import lambda.hackathon.Life.CellSource;
+
+/**
+ * Streaming readers and writers of Life patterns, in the RLE and plaintext
+ * formats, and of binary checkpoints.
+ * <p>
+ * Readers parse a memory-mapped file byte by byte and pass each live cell to
+ * a {@link CellConsumer}, such as {@link LifeSparse#add}, so a pattern goes
+ * straight into an engine's storage.  Writers take the cells from a
+ * {@link CellSource}, such as {@link LifeSparse#forEach}, and hold them only
+ * as packed {@code long}s while sorting them into row order.
+ * <p>
+ * A checkpoint is the generation followed by the sorted cells, each encoded
+ * as the difference from the previous cell in a variable number of bytes.
+ * Neighbouring cells of a row differ by a few columns, so most cells of a
+ * dense pattern take a single byte.
+ * <p>
+ * http://www.conwaylife.com/wiki/Run_Length_Encoded
+ * http://www.conwaylife.com/wiki/Plaintext
+ */
+public class LifeIO {
+
+    public static void main(String[] args) throws IOException {
+        // Gosper glider gun
+        String gun = "#N Gosper glider gun\n" +
+                     "x = 36, y = 9, rule = B3/S23\n" +
+                     "24bo$22bobo$12b2o6b2o12b2o$11bo3bo4b2o12b2o$2o8bo5bo3b2o$2o8bo3bob2o4b\n" +
+                     "obo$10bo5bo7bo$11bo3bo$12b2o!\n";
+        Path rle = Files.createTempFile("gun", ".rle");
+        Path checkpoint = Files.createTempFile("gun", ".ckpt");
+        try {
+            Files.write(rle, gun.getBytes(StandardCharsets.US_ASCII));
+
+            LifeSparse s = new LifeSparse();
+            System.out.println(read(rle, s::add));
+            for (int g = 0; g < 300; g++) {
+                s.step();
+            }
+            writeRle(s::forEach, "B3/S23", System.out);
+
+            writeCheckpoint(checkpoint, 300, s::forEach);
+            LifeSparse r = new LifeSparse();
+            long generation = readCheckpoint(checkpoint, r::add);
+            System.out.println(generation + " " + r.population() + " " + s.toCells().equals(r.toCells()) +
+                               " " + Files.size(checkpoint) + " bytes");
+        }
+        finally {
+            Files.delete(rle);
+            Files.delete(checkpoint);
+        }
+    }
+
+    static final String CONWAY = "B3/S23";
+
+    static final int CHECKPOINT_MAGIC = 0x4C494645; // "LIFE"
+    static final int CHECKPOINT_VERSION = 1;
+
+    // RLE lines are no longer than 70 characters
+    static final int LINE_LENGTH = 70;
+
+    // Reading
+
+    /**
+     * Reads a pattern, in RLE if its first character is {@code #} or
+     * {@code x}, otherwise in plaintext.
+     *
+     * @return the rule of the pattern
+     */
+    static String read(Path p, CellConsumer action) throws IOException {
+        try (MappedInput in = new MappedInput(p)) {
+            int c = in.peek();
+            return c == '#' || c == 'x' ? readRle(in, action) : readPlaintext(in, action);
+        }
+    }
+
+    /**
+     * Reads a pattern in RLE, with its top left cell at the origin unless
+     * placed by a {@code #CXRLE Pos=x,y}, {@code #P x y} or {@code #R x y}
+     * line.  Cells in states other than dead and alive are taken as alive.
+     *
+     * @return the rule of the pattern, or Conway's rule if there is none
+     */
+    static String readRle(Path p, CellConsumer action) throws IOException {
+        try (MappedInput in = new MappedInput(p)) {
+            return readRle(in, action);
+        }
+    }
+
+    static String readRle(MappedInput in, CellConsumer action) throws IOException {
+        String rule = CONWAY;
+        int x0 = 0, y0 = 0;
+
+        // Comment and header lines
+        while (true) {
+            int c = in.peek();
+            if (c == '#') {
+                String line = in.readLine();
+                String[] f = line.substring(Math.min(2, line.length())).trim().split("[\\s,=]+");
+                if (line.startsWith("#CXRLE")) {
+                    for (int i = 0; i + 2 < f.length; i++) {
+                        if (f[i].equals("Pos")) {
+                            x0 = Integer.parseInt(f[i + 1]);
+                            y0 = Integer.parseInt(f[i + 2]);
+                        }
+                    }
+                }
+                else if ((line.startsWith("#P") || line.startsWith("#R")) && f.length >= 2) {
+                    x0 = Integer.parseInt(f[0]);
+                    y0 = Integer.parseInt(f[1]);
+                }
+            }
+            else if (c == 'x') {
+                String line = in.readLine();
+                int i = line.indexOf("rule");
+                if (i >= 0)
+                    rule = line.substring(line.indexOf('=', i) + 1).trim();
+            }
+            else if (c == '\n' || c == '\r' || c == ' ' || c == '\t') {
+                in.read();
+            }
+            else {
+                break;
+            }
+        }
+
+        // Runs of cells
+        // Positions and runs are longs, as a pattern may span all of the plane
+        long x = x0, y = y0, run = 0;
+        for (int c = in.read(); c != -1 && c != '!'; c = in.read()) {
+            if (c >= '0' && c <= '9') {
+                run = run * 10 + (c - '0');
+                continue;
+            }
+
+            long n = Math.max(run, 1);
+            run = 0;
+            if (c == 'b' || c == '.') {
+                x += n;
+            }
+            else if (c == '$') {
+                x = x0;
+                y += n;
+            }
+            else if (c == 'o' || (c >= 'A' && c <= 'X')) {
+                for (long i = 0; i < n; i++) {
+                    action.accept((int) x++, (int) y);
+                }
+            }
+            else if (c >= 'p' && c <= 'y') {
+                // Prefix of a multi-state cell, the state letter follows
+                run = n;
+            }
+            else if (c == '#') {
+                in.readLine();
+            }
+            else if (c > ' ') {
+                throw new IOException("Unexpected character '" + (char) c + "' in RLE at row " + (y - y0));
+            }
+        }
+        return rule;
+    }
+
+    /**
+     * Reads a pattern in plaintext, {@code O} or {@code *} being alive, with
+     * its top left cell at the origin.
+     *
+     * @return Conway's rule, as plaintext has no rule
+     */
+    static String readPlaintext(Path p, CellConsumer action) throws IOException {
+        try (MappedInput in = new MappedInput(p)) {
+            return readPlaintext(in, action);
+        }
+    }
+
+    static String readPlaintext(MappedInput in, CellConsumer action) throws IOException {
+        int x = 0, y = 0;
+        for (int c = in.read(); c != -1; c = in.read()) {
+            if (c == '!' && x == 0) {
+                in.readLine();
+            }
+            else if (c == '\n') {
+                x = 0;
+                y++;
+            }
+            else if (c == 'O' || c == '*') {
+                action.accept(x++, y);
+            }
+            else if (c != '\r') {
+                x++;
+            }
+        }
+        return CONWAY;
+    }
+
+    /**
+     * Reads a checkpoint.
+     *
+     * @return the generation of the checkpoint
+     */
+    static long readCheckpoint(Path p, CellConsumer action) throws IOException {
+        try (MappedInput in = new MappedInput(p)) {
+            if (in.readInt() != CHECKPOINT_MAGIC)
+                throw new IOException(p + " is not a checkpoint");
+            int version = in.read();
+            if (version != CHECKPOINT_VERSION)
+                throw new IOException("Unsupported checkpoint version " + version);
+
+            long generation = in.readLong();
+            long population = in.readLong();
+            long cell = 0;
+            for (long i = 0; i < population; i++) {
+                cell += in.readVarLong();
+                action.accept(column(cell), row(cell));
+            }
+            return generation;
+        }
+    }
+
+    // Writing
+
+    /**
+     * Writes a pattern in RLE, placing its top left cell with a
+     * {@code #CXRLE Pos=x,y} line so it reads back at the same position.
+     */
+    static void writeRle(CellSource source, String rule, OutputStream out) throws IOException {
+        long[] cells = sorted(source);
+        Output o = new Output(out);
+
+        int minX = Integer.MAX_VALUE, maxX = Integer.MIN_VALUE;
+        for (long c : cells) {
+            minX = Math.min(minX, column(c));
+            maxX = Math.max(maxX, column(c));
+        }
+        int minY = cells.length == 0 ? 0 : row(cells[0]);
+        int maxY = cells.length == 0 ? 0 : row(cells[cells.length - 1]);
+        if (cells.length == 0)
+            minX = maxX = 0;
+
+        o.line("#CXRLE Pos=" + minX + "," + minY);
+        o.line("x = " + ((long) maxX - minX + 1) + ", y = " + ((long) maxY - minY + 1) + ", rule = " + rule);
+
+        long y = minY, x = minX;
+        for (int i = 0; i < cells.length; ) {
+            int cy = row(cells[i]), cx = column(cells[i]);
+            if (cy != y) {
+                o.run(cy - y, '$');
+                y = cy;
+                x = minX;
+            }
+            o.run(cx - x, 'b');
+
+            // A run of consecutive live cells
+            int j = i + 1;
+            while (j < cells.length && cells[j] == cells[j - 1] + 1 && row(cells[j]) == cy) {
+                j++;
+            }
+            o.run(j - i, 'o');
+            x = (long) cx + (j - i);
+            i = j;
+        }
+        o.run(1, '!');
+        o.newLine();
+        o.flush();
+    }
+
+    /**
+     * Writes a pattern in plaintext, from its top left cell.
+     */
+    static void writePlaintext(CellSource source, OutputStream out) throws IOException {
+        long[] cells = sorted(source);
+        Output o = new Output(out);
+
+        int minX = Integer.MAX_VALUE;
+        for (long c : cells) {
+            minX = Math.min(minX, column(c));
+        }
+
+        int y = cells.length == 0 ? 0 : row(cells[0]);
+        int x = minX;
+        for (long c : cells) {
+            for (; y < row(c); y++) {
+                o.newLine();
+                x = minX;
+            }
+            for (; x < column(c); x++) {
+                o.write('.');
+            }
+            o.write('O');
+            x++;
+        }
+        o.newLine();
+        o.flush();
+    }
+
+    static void writeCheckpoint(Path p, long generation, CellSource source) throws IOException {
+        long[] cells = sorted(source);
+        try (OutputStream out = Files.newOutputStream(p)) {
+            Output o = new Output(out);
+            o.writeInt(CHECKPOINT_MAGIC);
+            o.write(CHECKPOINT_VERSION);
+            o.writeLong(generation);
+            o.writeLong(cells.length);
+            long previous = 0;
+            for (long c : cells) {
+                o.writeVarLong(c - previous);
+                previous = c;
+            }
+            o.flush();
+        }
+    }
+
+    // Cells in row order
+
+    /**
+     * Packs a cell so that signed order of packed cells is row order, by row
+     * then column.
+     */
+    static long rowMajor(int x, int y) {
+        return ((long) y << 32) | ((x ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    static int column(long cell) {
+        return (int) cell ^ Integer.MIN_VALUE;
+    }
+
+    static int row(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    static long[] sorted(CellSource source) {
+        Packed p = new Packed();
+        source.forEach((x, y) -> p.accept(rowMajor(x, y)));
+        long[] cells = Arrays.copyOf(p.cells, p.size);
+        Arrays.parallelSort(cells);
+        return cells;
+    }
+
+    /**
+     * A growable array of packed cells.
+     */
+    static final class Packed {
+        long[] cells = new long[1024];
+        int size;
+
+        void accept(long cell) {
+            if (size == cells.length)
+                cells = Arrays.copyOf(cells, Math.multiplyExact(size, 2));
+            cells[size++] = cell;
+        }
+    }
+
+    /**
+     * Reads a file through a succession of memory-mapped windows.
+     */
+    static final class MappedInput implements AutoCloseable {
+        static final long WINDOW = 1 << 28;
+
+        final FileChannel channel;
+        final long size;
+        long position;
+        MappedByteBuffer buffer;
+
+        MappedInput(Path p) throws IOException {
+            this.channel = FileChannel.open(p, StandardOpenOption.READ);
+            this.size = channel.size();
+        }
+
+        int peek() throws IOException {
+            if (!ensure())
+                return -1;
+            return buffer.get(buffer.position()) & 0xFF;
+        }
+
+        int read() throws IOException {
+            if (!ensure())
+                return -1;
+            return buffer.get() & 0xFF;
+        }
+
+        boolean ensure() throws IOException {
+            if (buffer != null && buffer.hasRemaining())
+                return true;
+            if (position == size)
+                return false;
+
+            long length = Math.min(WINDOW, size - position);
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            position += length;
+            return true;
+        }
+
+        String readLine() throws IOException {
+            StringBuilder sb = new StringBuilder();
+            for (int c = read(); c != -1 && c != '\n'; c = read()) {
+                if (c != '\r')
+                    sb.append((char) c);
+            }
+            return sb.toString();
+        }
+
+        int readInt() throws IOException {
+            int v = 0;
+            for (int i = 0; i < 4; i++) {
+                v = (v << 8) | readByte();
+            }
+            return v;
+        }
+
+        long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        long readVarLong() throws IOException {
+            long v = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return v;
+            }
+        }
+
+        int readByte() throws IOException {
+            int b = read();
+            if (b == -1)
+                throw new IOException("Unexpected end of file");
+            return b;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes bytes through a buffer, and RLE runs, wrapping lines at
+     * {@link #LINE_LENGTH} characters.
+     */
+    static final class Output {
+        final OutputStream out;
+        final byte[] buffer = new byte[1 << 16];
+        int count;
+        int column;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void run(long n, char tag) throws IOException {
+            if (n <= 0)
+                return;
+
+            String token = n == 1 ? String.valueOf(tag) : n + String.valueOf(tag);
+            if (column + token.length() > LINE_LENGTH)
+                newLine();
+            for (int i = 0; i < token.length(); i++) {
+                write(token.charAt(i));
+            }
+        }
+
+        void line(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+            newLine();
+        }
+
+        void newLine() throws IOException {
+            write('\n');
+            column = 0;
+        }
+
+        void write(int b) throws IOException {
+            if (count == buffer.length)
+                flush();
+            buffer[count++] = (byte) b;
+            column++;
+        }
+
+        void writeInt(int v) throws IOException {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                write(v >>> shift);
+            }
+        }
+
+        void writeLong(long v) throws IOException {
+            writeInt((int) (v >>> 32));
+            writeInt((int) v);
+        }
+
+        /**
+         * Writes a value as 7 bits per byte, least significant first, the
+         * top bit of a byte set if more bytes follow.
+         */
+        void writeVarLong(long v) throws IOException {
+            while ((v & ~0x7FL) != 0) {
+                write((int) (v & 0x7F) | 0x80);
+                v >>>= 7;
+            }
+            write((int) v);
+        }
+
+        void flush() throws IOException {
+            out.write(buffer, 0, count);
+            out.flush();
+            count = 0;
+        }
+    }
+}
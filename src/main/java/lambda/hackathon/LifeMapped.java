@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * A bounded Life grid held off-heap in memory-mapped files, for universes
+ * far larger than the heap, of {@code 10^11} cells and more.
+ * <p>
+ * The grid is divided into tiles of 512 x 64 cells, each tile being 4K
+ * bytes, a page, of 64 rows of 8 {@code long} words.  Tile {@code i} is at
+ * offset {@code 4096 * i} of a sparse file, so only the pages of tiles that
+ * were ever written take space on disk, and the operating system pages tiles
+ * in and out of memory as needed.  There are two files, the current and next
+ * generations, swapped after each step.
+ * <p>
+ * A bit set per generation, on the heap at one bit per tile, records which
+ * tiles have live cells; other tiles are never read and so may hold stale
+ * data.  A step visits the tiles with live cells and their neighbours in
+ * address order, so the files are read and written sequentially, and each
+ * tile is stepped with {@link LifeRule#evolve}.
+ */
+public class LifeMapped implements Life.Engine, AutoCloseable {
+
+    public static void main(String[] args) throws IOException {
+        // A glider near the centre of a grid of about 1.1 * 10^12 cells
+        Path d = Files.createTempDirectory("life");
+        try (LifeMapped m = new LifeMapped(d, -(1 << 19), -(1 << 19), 2048, 16384)) {
+            m.set(1, 0);
+            m.set(2, 1);
+            m.set(0, 2);
+            m.set(1, 2);
+            m.set(2, 2);
+            System.out.println(m.width() * m.height() + " cells");
+            for (int i = 0; i < 5; i++) {
+                System.out.println(m.toCells());
+                m.step();
+            }
+        }
+        finally {
+            Files.delete(d);
+        }
+
+        Set<Cell> world = new HashSet<>(Arrays.asList(Cell.of(1, 2),
+                                                      Cell.of(1, 1),
+                                                      Cell.of(1, 0)));
+        System.out.println(new LifeMapped().step(world, 3));
+    }
+
+    static final int TILE_WIDTH = 512;
+    static final int TILE_HEIGHT = 64;
+    static final int TILE_WORDS = TILE_WIDTH / 64;
+    static final int TILE_BYTES = TILE_HEIGHT * TILE_WORDS * 8;
+
+    // Tiles per mapped region of a file, 1G bytes
+    static final int REGION_TILES = 1 << 18;
+
+    final Path directory;
+    final int originX;
+    final int originY;
+    final int tilesX;
+    final int tilesY;
+    final LifeRule rule;
+
+    Generation current;
+    Generation next;
+
+    // The tiles to step, a bit per tile
+    final long[] active;
+    // A tile and its halo of one cell, and its next generation
+    final long[] halo = new long[(TILE_HEIGHT + 2) * (TILE_WORDS + 2)];
+    final long[] rows = new long[TILE_HEIGHT * TILE_WORDS];
+
+    /**
+     * A facade for {@link Life.Engine}, stepping each world in a grid of
+     * temporary files just large enough to hold it.
+     */
+    LifeMapped() {
+        this(LifeRule.CONWAY);
+    }
+
+    LifeMapped(LifeRule rule) {
+        this.rule = rule;
+        this.directory = null;
+        this.originX = this.originY = this.tilesX = this.tilesY = 0;
+        this.active = null;
+    }
+
+    /**
+     * Creates an empty grid of {@code tilesX * 512} by {@code tilesY * 64}
+     * cells, whose generation files are kept in a directory.
+     */
+    LifeMapped(Path directory, int originX, int originY, int tilesX, int tilesY) throws IOException {
+        this(directory, originX, originY, tilesX, tilesY, LifeRule.CONWAY);
+    }
+
+    LifeMapped(Path directory, int originX, int originY, int tilesX, int tilesY, LifeRule rule) throws IOException {
+        if (tilesX <= 0 || tilesY <= 0)
+            throw new IllegalArgumentException("Empty grid");
+        if ((long) originX + (long) tilesX * TILE_WIDTH - 1 > Integer.MAX_VALUE ||
+            (long) originY + (long) tilesY * TILE_HEIGHT - 1 > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Grid is beyond the range of cells");
+
+        this.directory = directory;
+        this.originX = originX;
+        this.originY = originY;
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.rule = rule;
+        this.current = new Generation(directory.resolve("current.bin"));
+        this.next = new Generation(directory.resolve("next.bin"));
+        this.active = new long[current.occupied.length];
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world) {
+        return step(world, 1);
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world, long generations) {
+        if (world.isEmpty())
+            return new HashSet<>();
+
+        long minX = Long.MAX_VALUE, minY = Long.MAX_VALUE;
+        long maxX = Long.MIN_VALUE, maxY = Long.MIN_VALUE;
+        for (Cell c : world) {
+            minX = Math.min(minX, c.x);
+            minY = Math.min(minY, c.y);
+            maxX = Math.max(maxX, c.x);
+            maxY = Math.max(maxY, c.y);
+        }
+
+        // Cells travel at most one cell per generation
+        long margin = generations + 1;
+        long tx = (maxX - minX + 2 * margin) / TILE_WIDTH + 1;
+        long ty = (maxY - minY + 2 * margin) / TILE_HEIGHT + 1;
+        if (minX - margin < Integer.MIN_VALUE || minY - margin < Integer.MIN_VALUE ||
+            tx > Integer.MAX_VALUE || ty > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("World is too large");
+
+        try {
+            Path d = Files.createTempDirectory("life");
+            try (LifeMapped m = new LifeMapped(d, (int) (minX - margin), (int) (minY - margin), (int) tx, (int) ty, rule)) {
+                for (Cell c : world) {
+                    m.set(c.x, c.y);
+                }
+                for (long g = 0; g < generations; g++) {
+                    m.step();
+                }
+                return m.toCells();
+            }
+            finally {
+                Files.delete(d);
+            }
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    long width() {
+        return (long) tilesX * TILE_WIDTH;
+    }
+
+    long height() {
+        return (long) tilesY * TILE_HEIGHT;
+    }
+
+    void set(int x, int y) {
+        long c = (long) x - originX, r = (long) y - originY;
+        if (c < 0 || c >= width() || r < 0 || r >= height())
+            throw new IndexOutOfBoundsException(Cell.of(x, y) + " is outside of the grid");
+
+        long tile = (r / TILE_HEIGHT) * tilesX + c / TILE_WIDTH;
+        int word = (int) (r % TILE_HEIGHT) * TILE_WORDS + (int) (c % TILE_WIDTH) / 64;
+        if (!current.isOccupied(tile)) {
+            current.clear(tile);
+            current.occupy(tile);
+        }
+        current.put(tile, word, current.get(tile, word) | 1L << c);
+    }
+
+    void forEach(Life.CellConsumer action) {
+        for (long t = current.nextOccupied(0); t >= 0; t = current.nextOccupied(t + 1)) {
+            long x0 = originX + (t % tilesX) * TILE_WIDTH;
+            long y0 = originY + (t / tilesX) * TILE_HEIGHT;
+            for (int i = 0; i < TILE_HEIGHT * TILE_WORDS; i++) {
+                for (long w = current.get(t, i); w != 0; w &= w - 1) {
+                    action.accept((int) (x0 + (i % TILE_WORDS) * 64 + Long.numberOfTrailingZeros(w)),
+                                  (int) (y0 + i / TILE_WORDS));
+                }
+            }
+        }
+    }
+
+    Set<Cell> toCells() {
+        Set<Cell> world = new HashSet<>();
+        forEach((x, y) -> world.add(Cell.of(x, y)));
+        return world;
+    }
+
+    long population() {
+        long n = 0;
+        for (long t = current.nextOccupied(0); t >= 0; t = current.nextOccupied(t + 1)) {
+            for (int i = 0; i < TILE_HEIGHT * TILE_WORDS; i++) {
+                n += Long.bitCount(current.get(t, i));
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Advances the grid by one generation.
+     */
+    void step() {
+        // The occupied tiles and their neighbours
+        Arrays.fill(active, 0);
+        for (long t = current.nextOccupied(0); t >= 0; t = current.nextOccupied(t + 1)) {
+            int tx = (int) (t % tilesX), ty = (int) (t / tilesX);
+            for (int y = Math.max(ty - 1, 0); y <= Math.min(ty + 1, tilesY - 1); y++) {
+                for (int x = Math.max(tx - 1, 0); x <= Math.min(tx + 1, tilesX - 1); x++) {
+                    long a = (long) y * tilesX + x;
+                    active[(int) (a >>> 6)] |= 1L << a;
+                }
+            }
+        }
+
+        Arrays.fill(next.occupied, 0);
+        for (int i = 0; i < active.length; i++) {
+            for (long w = active[i]; w != 0; w &= w - 1) {
+                long t = ((long) i << 6) + Long.numberOfTrailingZeros(w);
+                step((int) (t % tilesX), (int) (t / tilesX));
+            }
+        }
+
+        Generation g = current;
+        current = next;
+        next = g;
+    }
+
+    void step(int tx, int ty) {
+        // Row r and word w of the halo is row r - 1 and word w - 1 of the tile
+        final int hw = TILE_WORDS + 2;
+        for (int r = -1; r <= TILE_HEIGHT; r++) {
+            for (int w = -1; w <= TILE_WORDS; w++) {
+                halo[(r + 1) * hw + w + 1] = word(tx, ty, r, w);
+            }
+        }
+
+        long live = 0;
+        for (int r = 0; r < TILE_HEIGHT; r++) {
+            int a = r * hw, c = a + hw, b = c + hw;
+            for (int w = 1; w <= TILE_WORDS; w++) {
+                long n = rule.evolve(
+                        (halo[a + w] << 1) | (halo[a + w - 1] >>> 63), halo[a + w], (halo[a + w] >>> 1) | (halo[a + w + 1] << 63),
+                        (halo[c + w] << 1) | (halo[c + w - 1] >>> 63), halo[c + w], (halo[c + w] >>> 1) | (halo[c + w + 1] << 63),
+                        (halo[b + w] << 1) | (halo[b + w - 1] >>> 63), halo[b + w], (halo[b + w] >>> 1) | (halo[b + w + 1] << 63));
+                rows[r * TILE_WORDS + w - 1] = n;
+                live |= n;
+            }
+        }
+
+        // Tiles left empty are not written, only marked as unoccupied
+        if (live != 0) {
+            long t = (long) ty * tilesX + tx;
+            next.occupy(t);
+            for (int i = 0; i < rows.length; i++) {
+                next.put(t, i, rows[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns word {@code w} of row {@code r} of a tile of the current
+     * generation, where the row and word may lie in a neighbouring tile.
+     */
+    long word(int tx, int ty, int r, int w) {
+        if (r < 0) {
+            ty--;
+            r += TILE_HEIGHT;
+        }
+        else if (r >= TILE_HEIGHT) {
+            ty++;
+            r -= TILE_HEIGHT;
+        }
+        if (w < 0) {
+            tx--;
+            w += TILE_WORDS;
+        }
+        else if (w >= TILE_WORDS) {
+            tx++;
+            w -= TILE_WORDS;
+        }
+        if (tx < 0 || tx >= tilesX || ty < 0 || ty >= tilesY)
+            return 0;
+
+        long t = (long) ty * tilesX + tx;
+        return current.isOccupied(t) ? current.get(t, r * TILE_WORDS + w) : 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null) {
+            current.close();
+            next.close();
+        }
+    }
+
+    /**
+     * A generation, held in a sparse file mapped a region at a time.
+     */
+    final class Generation implements AutoCloseable {
+        final Path path;
+        final FileChannel channel;
+        final long tiles;
+        final MappedByteBuffer[] regions;
+        // Bit t is set if tile t has live cells
+        final long[] occupied;
+
+        Generation(Path path) throws IOException {
+            this.tiles = (long) tilesX * tilesY;
+            if (tiles > (long) Integer.MAX_VALUE * 64)
+                throw new IllegalArgumentException("Too many tiles");
+
+            this.path = path;
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.SPARSE,
+                                            StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.regions = new MappedByteBuffer[(int) ((tiles + REGION_TILES - 1) / REGION_TILES)];
+            this.occupied = new long[(int) ((tiles + 63) >>> 6)];
+        }
+
+        boolean isOccupied(long t) {
+            return (occupied[(int) (t >>> 6)] & (1L << t)) != 0;
+        }
+
+        void occupy(long t) {
+            occupied[(int) (t >>> 6)] |= 1L << t;
+        }
+
+        /**
+         * Returns the first occupied tile from {@code t}, or -1 if there is
+         * none.
+         */
+        long nextOccupied(long t) {
+            int i = (int) (t >>> 6);
+            if (i >= occupied.length)
+                return -1;
+
+            long w = occupied[i] & (-1L << t);
+            while (w == 0) {
+                if (++i == occupied.length)
+                    return -1;
+                w = occupied[i];
+            }
+            return ((long) i << 6) + Long.numberOfTrailingZeros(w);
+        }
+
+        long get(long t, int word) {
+            return region(t).getLong(offset(t, word));
+        }
+
+        void put(long t, int word, long value) {
+            region(t).putLong(offset(t, word), value);
+        }
+
+        void clear(long t) {
+            for (int i = 0; i < TILE_HEIGHT * TILE_WORDS; i++) {
+                put(t, i, 0);
+            }
+        }
+
+        int offset(long t, int word) {
+            return (int) (t % REGION_TILES) * TILE_BYTES + word * 8;
+        }
+
+        MappedByteBuffer region(long t) {
+            int i = (int) (t / REGION_TILES);
+            MappedByteBuffer r = regions[i];
+            if (r == null) {
+                try {
+                    long first = (long) i * REGION_TILES;
+                    r = channel.map(FileChannel.MapMode.READ_WRITE, first * TILE_BYTES,
+                                    Math.min(REGION_TILES, tiles - first) * TILE_BYTES);
+                }
+                catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                r.order(ByteOrder.nativeOrder());
+                regions[i] = r;
+            }
+            return r;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The mapped regions are released when they are garbage collected
+            channel.close();
+            Files.deleteIfExists(path);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+/**
+ * A Life-like rule, compiled from a rulestring such as {@code B3/S23}, the
+ * numbers of neighbours for which a dead cell is born and a live cell
+ * survives.
+ * <p>
+ * A rule is compiled into the forms the engines evaluate, so that every rule,
+ * Conway's included, costs the same:
+ * <ul>
+ * <li>bit masks of the birth and survival counts, for engines that count
+ * neighbours;</li>
+ * <li>a 512 entry table indexed by the 3x3 neighbourhood of a cell, for
+ * engines that hold small blocks of cells as bits; and</li>
+ * <li>bit-sliced constants for bitboard engines, which evaluate any rule
+ * with the same fixed sequence of boolean operations on the bit planes of
+ * 64 neighbour counts at once.</li>
+ * </ul>
+ * Rules where a dead cell with no live neighbours is born, {@code B0}, are
+ * not supported, as they fill an unbounded plane in one generation.
+ * <p>
+ * http://www.conwaylife.com/wiki/Rulestring
+ */
+public final class LifeRule {
+
+    public static void main(String[] args) {
+        for (String r : new String[] {"B3/S23", "23/36", "b3678/s34678"}) {
+            LifeRule rule = parse(r);
+            int entries = 0;
+            for (boolean alive : rule.table) {
+                entries += alive ? 1 : 0;
+            }
+            System.out.println(r + " -> " + rule + ", " + entries + " of 512 neighbourhoods alive");
+        }
+    }
+
+    static final LifeRule CONWAY = parse("B3/S23");
+    static final LifeRule HIGH_LIFE = parse("B36/S23");
+    static final LifeRule DAY_AND_NIGHT = parse("B3678/S34678");
+
+    // Bit n is set if a cell is born, or survives, with n live neighbours
+    final int birth;
+    final int survival;
+
+    // Entry i is the next state of the centre cell, bit 4, of the 3x3
+    // neighbourhood whose cell (x, y) is bit 3y + x
+    final boolean[] table = new boolean[512];
+
+    // The bit-sliced constants, each all zeros or all ones.  For each value
+    // i of the two low bits of the count, the next state is a function of
+    // the cell's state a and the four bit r of the count, in algebraic
+    // normal form, gi0 ^ a & gi1 ^ r & gi2 ^ a & r & gi3.  A count of eight
+    // has the low bits zero, so function 0 has two more terms, for the eight
+    // bit t, t & g04 ^ a & t & g05.
+    final long g00, g01, g02, g03, g04, g05;
+    final long g10, g11, g12, g13;
+    final long g20, g21, g22, g23;
+    final long g30, g31, g32, g33;
+
+    LifeRule(int birth, int survival) {
+        if ((birth & 1) != 0)
+            throw new IllegalArgumentException("B0 rules are not supported");
+        if (((birth | survival) >>> 9) != 0)
+            throw new IllegalArgumentException("Neighbour counts are from 0 to 8");
+
+        this.birth = birth;
+        this.survival = survival;
+
+        for (int i = 0; i < table.length; i++) {
+            table[i] = next((i & 0x10) != 0, Integer.bitCount(i & ~0x10));
+        }
+
+        long[][] g = new long[4][];
+        for (int low = 0; low < 4; low++) {
+            g[low] = anf(next(false, low), next(true, low), next(false, low + 4), next(true, low + 4));
+        }
+        g00 = g[0][0]; g01 = g[0][1]; g02 = g[0][2]; g03 = g[0][3];
+        g10 = g[1][0]; g11 = g[1][1]; g12 = g[1][2]; g13 = g[1][3];
+        g20 = g[2][0]; g21 = g[2][1]; g22 = g[2][2]; g23 = g[2][3];
+        g30 = g[3][0]; g31 = g[3][1]; g32 = g[3][2]; g33 = g[3][3];
+
+        // Correct function 0, from a count of zero to a count of eight
+        long[] eight = anf(next(false, 0), next(true, 0), next(false, 8), next(true, 8));
+        g04 = eight[2];
+        g05 = eight[3];
+    }
+
+    /**
+     * Returns the coefficients, all zeros or all ones, of the algebraic
+     * normal form of a function of two bits a and r, given its values.
+     */
+    static long[] anf(boolean f00, boolean f10, boolean f01, boolean f11) {
+        long v00 = f00 ? -1 : 0, v10 = f10 ? -1 : 0, v01 = f01 ? -1 : 0, v11 = f11 ? -1 : 0;
+        return new long[] {v00, v00 ^ v10, v00 ^ v01, v00 ^ v10 ^ v01 ^ v11};
+    }
+
+    /**
+     * Parses a rulestring in B/S notation, {@code B3/S23}, or in S/B
+     * notation, {@code 23/3}.
+     */
+    static LifeRule parse(String rulestring) {
+        String r = rulestring.trim().toUpperCase();
+        int slash = r.indexOf('/');
+        if (slash < 0)
+            throw new IllegalArgumentException("Not a rulestring: " + rulestring);
+
+        String first = r.substring(0, slash), second = r.substring(slash + 1);
+        if (first.startsWith("B") && second.startsWith("S"))
+            return new LifeRule(counts(first.substring(1), rulestring), counts(second.substring(1), rulestring));
+        if (first.startsWith("S") && second.startsWith("B"))
+            return new LifeRule(counts(second.substring(1), rulestring), counts(first.substring(1), rulestring));
+        return new LifeRule(counts(second, rulestring), counts(first, rulestring));
+    }
+
+    static int counts(String digits, String rulestring) {
+        int counts = 0;
+        for (char c : digits.toCharArray()) {
+            if (c < '0' || c > '8')
+                throw new IllegalArgumentException("Not a rulestring: " + rulestring);
+            counts |= 1 << (c - '0');
+        }
+        return counts;
+    }
+
+    /**
+     * Returns true if a cell with {@code count} live neighbours is alive in
+     * the next generation.
+     */
+    boolean next(boolean alive, int count) {
+        return (((alive ? survival : birth) >>> count) & 1) != 0;
+    }
+
+    /**
+     * Returns true if the centre cell of a 3x3 neighbourhood, cell
+     * {@code (x, y)} being bit {@code 3y + x}, is alive in the next
+     * generation.
+     */
+    boolean next(int neighbourhood) {
+        return table[neighbourhood];
+    }
+
+    /**
+     * Returns true if a live cell with no live neighbours survives, which
+     * engines that only visit the neighbours of live cells must check.
+     */
+    boolean survivesAlone() {
+        return (survival & 1) != 0;
+    }
+
+    /**
+     * Returns the next generation of 64 cells given the words of their eight
+     * neighbours, north west to south east, and of the cells themselves.
+     */
+    long evolve(long nw, long n, long ne, long w, long alive, long e, long sw, long s, long se) {
+        // Sum the eight neighbours into bit planes s0, s1, s2 and s3
+
+        // Three neighbours above
+        long s1 = nw ^ n ^ ne;
+        long c1 = (nw & n) | (ne & (nw ^ n));
+        // West, east and south west
+        long s2 = w ^ e ^ sw;
+        long c2 = (w & e) | (sw & (w ^ e));
+        // South and south east
+        long s3 = s ^ se;
+        long c3 = s & se;
+
+        long s0 = s1 ^ s2 ^ s3;
+        long c4 = (s1 & s2) | (s3 & (s1 ^ s2));
+
+        long t = c1 ^ c2 ^ c3;
+        long c5 = (c1 & c2) | (c3 & (c1 ^ c2));
+        long twos = t ^ c4;
+        long c6 = t & c4;
+
+        long fours = c5 ^ c6;
+        long eights = c5 & c6;
+
+        // Select, by the two low bits of the count, the function of the
+        // cell's state and the high bits of the count
+        long ar = alive & fours, at = alive & eights;
+        long f0 = g00 ^ (alive & g01) ^ (fours & g02) ^ (ar & g03) ^ (eights & g04) ^ (at & g05);
+        long f1 = g10 ^ (alive & g11) ^ (fours & g12) ^ (ar & g13);
+        long f2 = g20 ^ (alive & g21) ^ (fours & g22) ^ (ar & g23);
+        long f3 = g30 ^ (alive & g31) ^ (fours & g32) ^ (ar & g33);
+
+        long ns0 = ~s0, ntwos = ~twos;
+        return (ns0 & ntwos & f0) | (s0 & ntwos & f1) | (ns0 & twos & f2) | (s0 & twos & f3);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LifeRule)) return false;
+
+        LifeRule r = (LifeRule) o;
+        return birth == r.birth && survival == r.survival;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * birth + survival;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("B");
+        for (int n = 0; n <= 8; n++) {
+            if ((birth & (1 << n)) != 0)
+                sb.append(n);
+        }
+        sb.append("/S");
+        for (int n = 0; n <= 8; n++) {
+            if ((survival & (1 << n)) != 0)
+                sb.append(n);
+        }
+        return sb.toString();
+    }
+}
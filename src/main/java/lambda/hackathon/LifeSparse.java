@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * A sparse, unbounded Life engine that holds no object per cell.
+ * <p>
+ * A cell {@code (x, y)} is packed into a {@code long}, live cells are held in
+ * a {@link LongHashSet} and neighbour counts are accumulated in a
+ * {@link LongIntMap}, both hashing with a well-mixed hash rather than
+ * {@code Cell.hashCode}, which collides on diagonals.  The live set, the
+ * next live set and the counts are reused from one generation to the next.
+ */
+public class LifeSparse implements Life.Engine {
+
+    public static void main(String[] args) {
+        Set<Cell> world = new HashSet<>(Arrays.asList(Cell.of(1, 2),
+                                                      Cell.of(1, 1),
+                                                      Cell.of(1, 0)));
+
+        LifeSparse s = new LifeSparse();
+        s.load(world);
+        for (int i = 0; i < 5; i++) {
+            System.out.println(s.toCells());
+            s.step();
+        }
+    }
+
+    static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    static int x(long cell) {
+        return (int) (cell >> 32);
+    }
+
+    static int y(long cell) {
+        return (int) cell;
+    }
+
+    final LifeRule rule;
+    LongHashSet live = new LongHashSet();
+    LongHashSet next = new LongHashSet();
+    final LongIntMap counts = new LongIntMap();
+
+    // The actions of a step, created once so a step allocates nothing
+    final LongConsumer countNeighbours;
+    final LongIntMap.LongIntConsumer addIfAlive;
+    final LongConsumer addIfAlone;
+
+    LifeSparse() {
+        this(LifeRule.CONWAY);
+    }
+
+    LifeSparse(LifeRule rule) {
+        this.rule = rule;
+
+        this.countNeighbours = c -> {
+            int x = x(c), y = y(c);
+            counts.addTo(pack(x - 1, y - 1), 1);
+            counts.addTo(pack(x, y - 1), 1);
+            counts.addTo(pack(x + 1, y - 1), 1);
+            counts.addTo(pack(x - 1, y), 1);
+            counts.addTo(pack(x + 1, y), 1);
+            counts.addTo(pack(x - 1, y + 1), 1);
+            counts.addTo(pack(x, y + 1), 1);
+            counts.addTo(pack(x + 1, y + 1), 1);
+        };
+        this.addIfAlive = (c, count) -> {
+            if (rule.next(live.contains(c), count))
+                next.add(c);
+        };
+        this.addIfAlone = c -> {
+            if (counts.get(c) == 0)
+                next.add(c);
+        };
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world) {
+        return step(world, 1);
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world, long generations) {
+        load(world);
+        for (long g = 0; g < generations; g++) {
+            step();
+        }
+        return toCells();
+    }
+
+    void load(Set<Cell> world) {
+        live.clear();
+        for (Cell c : world) {
+            add(c.x, c.y);
+        }
+    }
+
+    void add(int x, int y) {
+        live.add(pack(x, y));
+    }
+
+    void forEach(Life.CellConsumer action) {
+        live.forEach(c -> action.accept(x(c), y(c)));
+    }
+
+    Set<Cell> toCells() {
+        Set<Cell> world = new HashSet<>();
+        live.forEach(c -> world.add(Cell.of(x(c), y(c))));
+        return world;
+    }
+
+    long population() {
+        return live.size();
+    }
+
+    /**
+     * Advances the world by one generation.
+     */
+    void step() {
+        // Calculate the frequencies of neighbouring cells
+        counts.clear();
+        live.forEach(countNeighbours);
+
+        next.clear();
+        counts.forEach(addIfAlive);
+        if (rule.survivesAlone()) {
+            live.forEach(addIfAlone);
+        }
+
+        LongHashSet t = live;
+        live = next;
+        next = t;
+    }
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import lambda.hackathon.Life.Cell;
+
+/**
+ * A parallel, unbounded Life engine that partitions the plane into tiles of
+ * 64 x 64 cells, each row of a tile being one {@code long} word.
+ * <p>
+ * Each generation the tiles are stepped as fork/join tasks.  A tile reads a
+ * halo of one cell from its eight neighbouring tiles, which are only read
+ * during a step and written to their own next generation, so tiles need no
+ * synchronisation.  Before stepping, empty tiles are created next to any
+ * live cell on the edge of a tile, since births may spill over, and after
+ * stepping, tiles left empty are dropped.
+ * <p>
+ * A tile holds two generations, indexed by the parity of the generation, and
+ * a step writes generation {@code g + 1} over generation {@code g - 1}.  In
+ * incremental mode only the tiles next to a tile that changed, where a tile
+ * has changed if generation {@code g} differs from {@code g - 2}, are
+ * stepped.  Any other tile sees the same neighbourhood as two generations
+ * ago, so generation {@code g + 1} is that of {@code g - 1}, which the tile
+ * already holds.  Still lifes and period 2 oscillators therefore cost
+ * nothing once settled, and a step costs in proportion to the activity
+ * rather than the population.
+ */
+public class LifeTiled implements Life.Engine {
+
+    public static void main(String[] args) {
+        Set<Cell> world = new HashSet<>(Arrays.asList(Cell.of(1, 2),
+                                                      Cell.of(1, 1),
+                                                      Cell.of(1, 0)));
+
+        LifeTiled t = new LifeTiled(ForkJoinPool.commonPool(), true);
+        t.load(world);
+        for (int i = 0; i < 5; i++) {
+            System.out.println(t.toCells() + " " + t.stepped + " tile(s) stepped");
+            t.step();
+        }
+    }
+
+    static final int SIZE = 64;
+
+    // Tiles stepped sequentially by a leaf task
+    static final int THRESHOLD = 4;
+
+    static final long[] EMPTY = new long[SIZE];
+
+    static final class Tile {
+        final int tx;
+        final int ty;
+        // The rows of the last even and odd generations
+        final long[][] generations = new long[2][SIZE];
+        // True if the last generation differs from the one two before it
+        boolean changed = true;
+
+        Tile(int tx, int ty) {
+            this.tx = tx;
+            this.ty = ty;
+        }
+
+        static boolean isEmpty(long[] rows) {
+            for (long r : rows) {
+                if (r != 0)
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    final ForkJoinPool pool;
+    final boolean incremental;
+    final LifeRule rule;
+    // Tiles keyed by their packed tile coordinates
+    final Map<Long, Tile> tiles = new HashMap<>();
+    long generation;
+    // The number of steps, after cells were added, that must step all tiles
+    int unsettled;
+    // The number of tiles stepped by the last step
+    int stepped;
+
+    LifeTiled() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    LifeTiled(ForkJoinPool pool) {
+        this(pool, false);
+    }
+
+    LifeTiled(ForkJoinPool pool, boolean incremental) {
+        this(pool, incremental, LifeRule.CONWAY);
+    }
+
+    LifeTiled(ForkJoinPool pool, boolean incremental, LifeRule rule) {
+        this.pool = pool;
+        this.incremental = incremental;
+        this.rule = rule;
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world) {
+        return step(world, 1);
+    }
+
+    @Override
+    public Set<Cell> step(Set<Cell> world, long generations) {
+        load(world);
+        for (long g = 0; g < generations; g++) {
+            step();
+        }
+        return toCells();
+    }
+
+    void load(Set<Cell> world) {
+        tiles.clear();
+        generation = 0;
+        for (Cell c : world) {
+            add(c.x, c.y);
+        }
+    }
+
+    void add(int x, int y) {
+        rows(tile(x >> 6, y >> 6))[y & 63] |= 1L << x;
+        // The generation has no predecessor, so step all tiles until each
+        // tile holds two generations that are successors
+        unsettled = 2;
+    }
+
+    Set<Cell> toCells() {
+        Set<Cell> world = new HashSet<>();
+        forEach((x, y) -> world.add(Cell.of(x, y)));
+        return world;
+    }
+
+    void forEach(Life.CellConsumer action) {
+        for (Tile t : tiles.values()) {
+            long[] rows = rows(t);
+            for (int r = 0; r < SIZE; r++) {
+                for (long w = rows[r]; w != 0; w &= w - 1) {
+                    action.accept((t.tx << 6) + Long.numberOfTrailingZeros(w), (t.ty << 6) + r);
+                }
+            }
+        }
+    }
+
+    long population() {
+        long n = 0;
+        for (Tile t : tiles.values()) {
+            for (long r : rows(t)) {
+                n += Long.bitCount(r);
+            }
+        }
+        return n;
+    }
+
+    int tileCount() {
+        return tiles.size();
+    }
+
+    Tile tile(int tx, int ty) {
+        return tiles.computeIfAbsent(LifeSparse.pack(tx, ty), k -> new Tile(tx, ty));
+    }
+
+    long[] rows(Tile t) {
+        return t.generations[(int) generation & 1];
+    }
+
+    long[] rows(int tx, int ty) {
+        Tile t = tiles.get(LifeSparse.pack(tx, ty));
+        return t == null ? EMPTY : rows(t);
+    }
+
+    /**
+     * Advances the world by one generation.
+     */
+    void step() {
+        boolean all = !incremental || unsettled > 0;
+        if (unsettled > 0)
+            unsettled--;
+        List<Tile> changed = new ArrayList<>();
+        for (Tile t : tiles.values()) {
+            if (t.changed || all)
+                changed.add(t);
+        }
+
+        grow(changed);
+
+        Tile[] ts;
+        if (!all) {
+            // The changed tiles and their neighbours
+            Set<Tile> active = new HashSet<>();
+            for (Tile t : changed) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        Tile n = tiles.get(LifeSparse.pack(t.tx + dx, t.ty + dy));
+                        if (n != null)
+                            active.add(n);
+                    }
+                }
+            }
+            ts = active.toArray(new Tile[active.size()]);
+        }
+        else {
+            ts = tiles.values().toArray(new Tile[tiles.size()]);
+        }
+
+        pool.invoke(new StepTask(ts, 0, ts.length));
+        generation++;
+        stepped = ts.length;
+
+        for (Tile t : ts) {
+            // An incrementally stepped tile is only dropped once empty for
+            // three generations, as an absent tile must be empty in both the
+            // last generation and the one two before it
+            if (Tile.isEmpty(rows(t)) &&
+                (!incremental || (!t.changed && Tile.isEmpty(t.generations[(int) (generation + 1) & 1]))))
+                tiles.remove(LifeSparse.pack(t.tx, t.ty));
+        }
+    }
+
+    /**
+     * Creates the missing tiles next to live cells on the edges of tiles.
+     */
+    void grow(List<Tile> edges) {
+        for (Tile t : edges) {
+            long[] rs = rows(t);
+            long top = rs[0], bottom = rs[SIZE - 1];
+            long west = 0, east = 0;
+            for (long r : rs) {
+                west |= r & 1;
+                east |= r >>> 63;
+            }
+
+            if (top != 0) tile(t.tx, t.ty - 1);
+            if (bottom != 0) tile(t.tx, t.ty + 1);
+            if (west != 0) tile(t.tx - 1, t.ty);
+            if (east != 0) tile(t.tx + 1, t.ty);
+            if ((top & 1) != 0) tile(t.tx - 1, t.ty - 1);
+            if ((top >>> 63) != 0) tile(t.tx + 1, t.ty - 1);
+            if ((bottom & 1) != 0) tile(t.tx - 1, t.ty + 1);
+            if ((bottom >>> 63) != 0) tile(t.tx + 1, t.ty + 1);
+        }
+    }
+
+    void step(Tile t) {
+        long[] nw = rows(t.tx - 1, t.ty - 1), n = rows(t.tx, t.ty - 1), ne = rows(t.tx + 1, t.ty - 1);
+        long[] w = rows(t.tx - 1, t.ty), c = rows(t), e = rows(t.tx + 1, t.ty);
+        long[] sw = rows(t.tx - 1, t.ty + 1), s = rows(t.tx, t.ty + 1), se = rows(t.tx + 1, t.ty + 1);
+        long[] next = t.generations[(int) (generation + 1) & 1];
+
+        long changed = 0;
+        for (int r = 0; r < SIZE; r++) {
+            // The row above and below, with the words of the tiles to their west and east
+            long a, aw, ae, b, bw, be;
+            if (r == 0) {
+                a = n[SIZE - 1]; aw = nw[SIZE - 1]; ae = ne[SIZE - 1];
+            }
+            else {
+                a = c[r - 1]; aw = w[r - 1]; ae = e[r - 1];
+            }
+            if (r == SIZE - 1) {
+                b = s[0]; bw = sw[0]; be = se[0];
+            }
+            else {
+                b = c[r + 1]; bw = w[r + 1]; be = e[r + 1];
+            }
+
+            long row = rule.evolve(
+                    (a << 1) | (aw >>> 63), a, (a >>> 1) | (ae << 63),
+                    (c[r] << 1) | (w[r] >>> 63), c[r], (c[r] >>> 1) | (e[r] << 63),
+                    (b << 1) | (bw >>> 63), b, (b >>> 1) | (be << 63));
+            // Compare with the generation before last, which is overwritten
+            changed |= row ^ next[r];
+            next[r] = row;
+        }
+        t.changed = changed != 0;
+    }
+
+    final class StepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Tile[] ts;
+        final int from;
+        final int to;
+
+        StepTask(Tile[] ts, int from, int to) {
+            this.ts = ts;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    step(ts[i]);
+                }
+            }
+            else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new StepTask(ts, from, mid), new StepTask(ts, mid, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * An open-addressing hash set of {@code long} values, with linear probing.
+ * <p>
+ * The key {@code 0} marks an empty slot, so it is held aside in a flag.
+ * Clearing the set keeps its arrays, so a set can be refilled without
+ * allocating.
+ */
+final class LongHashSet {
+    long[] keys;
+    boolean hasZero;
+    int size;
+    int mask;
+
+    LongHashSet() {
+        this(16);
+    }
+
+    LongHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * Scrambles the bits of a key, so that keys differing only in a few bits,
+     * such as packed coordinates of nearby cells, spread over the table.
+     * This is the finaliser of MurmurHash3.
+     */
+    static int mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return (int) k;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(long k) {
+        if (k == 0)
+            return hasZero;
+
+        for (int i = mix(k) & mask; ; i = (i + 1) & mask) {
+            long e = keys[i];
+            if (e == k)
+                return true;
+            if (e == 0)
+                return false;
+        }
+    }
+
+    /**
+     * @return true if the key was not already present
+     */
+    boolean add(long k) {
+        if (k == 0) {
+            if (hasZero)
+                return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+
+        for (int i = mix(k) & mask; ; i = (i + 1) & mask) {
+            long e = keys[i];
+            if (e == k)
+                return false;
+            if (e == 0) {
+                keys[i] = k;
+                if (++size > (mask + 1) >>> 1)
+                    grow();
+                return true;
+            }
+        }
+    }
+
+    void clear() {
+        if (size != 0) {
+            Arrays.fill(keys, 0L);
+            hasZero = false;
+            size = 0;
+        }
+    }
+
+    void forEach(LongConsumer action) {
+        if (hasZero)
+            action.accept(0);
+        for (long k : keys) {
+            if (k != 0)
+                action.accept(k);
+        }
+    }
+
+    long[] toArray() {
+        long[] a = new long[size];
+        int n = 0;
+        if (hasZero)
+            a[n++] = 0;
+        for (long k : keys) {
+            if (k != 0)
+                a[n++] = k;
+        }
+        return a;
+    }
+
+    void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        mask = keys.length - 1;
+        for (long k : old) {
+            if (k != 0) {
+                int i = mix(k) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = k;
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from {@code long} keys to {@code int} values,
+ * with linear probing, for counting without boxing.
+ * <p>
+ * The key {@code 0} marks an empty slot, so its value is held aside.
+ * Clearing the map keeps its arrays, so a map can be refilled without
+ * allocating.
+ */
+final class LongIntMap {
+
+    @FunctionalInterface
+    interface LongIntConsumer {
+        void accept(long key, int value);
+    }
+
+    long[] keys;
+    int[] values;
+    boolean hasZero;
+    int zeroValue;
+    int size;
+    int mask;
+
+    LongIntMap() {
+        this(16);
+    }
+
+    LongIntMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.mask = capacity - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the value of the key, or 0 if absent
+     */
+    int get(long k) {
+        if (k == 0)
+            return zeroValue;
+
+        for (int i = LongHashSet.mix(k) & mask; ; i = (i + 1) & mask) {
+            long e = keys[i];
+            if (e == k)
+                return values[i];
+            if (e == 0)
+                return 0;
+        }
+    }
+
+    /**
+     * Adds to the value of a key, an absent key having the value 0.
+     *
+     * @return the new value
+     */
+    int addTo(long k, int delta) {
+        if (k == 0) {
+            if (!hasZero) {
+                hasZero = true;
+                size++;
+            }
+            return zeroValue += delta;
+        }
+
+        for (int i = LongHashSet.mix(k) & mask; ; i = (i + 1) & mask) {
+            long e = keys[i];
+            if (e == k)
+                return values[i] += delta;
+            if (e == 0) {
+                keys[i] = k;
+                values[i] = delta;
+                if (++size > (mask + 1) >>> 1)
+                    grow();
+                return delta;
+            }
+        }
+    }
+
+    void clear() {
+        if (size != 0) {
+            Arrays.fill(keys, 0L);
+            hasZero = false;
+            zeroValue = 0;
+            size = 0;
+        }
+    }
+
+    void forEach(LongIntConsumer action) {
+        if (hasZero)
+            action.accept(0, zeroValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != 0)
+                action.accept(keys[i], values[i]);
+        }
+    }
+
+    void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            long k = oldKeys[j];
+            if (k != 0) {
+                int i = LongHashSet.mix(k) & mask;
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = k;
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
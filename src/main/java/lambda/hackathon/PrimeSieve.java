@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Segmented sieve of Eratosthenes, holding odd numbers only, for all the
+ * primes in a range {@code [lo, hi)}.
+ * <p>
+ * Each segment is a bit set of {@link #SEGMENT_BITS} odd numbers, sized to
+ * fit in the L1 data cache, and is sieved by the odd primes up to
+ * {@code sqrt(hi)}.  Segments are independent of each other so they are
+ * sieved in parallel on the fork/join common pool.  Memory is proportional
+ * to {@code sqrt(hi)} plus one segment per worker thread.
+ * <p>
+ * http://en.wikipedia.org/wiki/Sieve_of_Eratosthenes#Segmented_sieve
+ */
+public class PrimeSieve {
+
+    // 32K bytes of odd numbers per segment, that's a span of 512K integers
+    static final int SEGMENT_BITS = Integer.getInteger("primesieve.segment.bits", 32 * 1024 * 8);
+
+    public static void main(String[] args) {
+        System.out.println(primes(0, 100).boxed().collect(toList()));
+        System.out.println(count(0, 1_000_000_000L));
+        System.out.println(primes(1_000_000_000_000L - 1000, 1_000_000_000_000L).count());
+    }
+
+    /**
+     * Returns an ordered stream of the primes in {@code [lo, hi)}.  The
+     * stream may be made parallel, in which case segments are split amongst
+     * the fork/join tasks.
+     */
+    static LongStream primes(long lo, long hi) {
+        return StreamSupport.longStream(new PrimeSieve(lo, hi).spliterator(), false);
+    }
+
+    /**
+     * Returns the number of primes in {@code [lo, hi)}, sieving segments in
+     * parallel.
+     */
+    static long count(long lo, long hi) {
+        PrimeSieve s = new PrimeSieve(lo, hi);
+        long two = s.containsTwo ? 1 : 0;
+        return two + IntStream.range(0, s.segments).parallel()
+                .mapToLong(s::countSegment)
+                .sum();
+    }
+
+    // The first odd number in the range
+    final long first;
+    // The number of odd numbers in the range
+    final long odds;
+    final int segments;
+    final boolean containsTwo;
+    // The odd primes <= sqrt(hi - 1)
+    final int[] basePrimes;
+
+    PrimeSieve(long lo, long hi) {
+        if (lo < 0)
+            lo = 0;
+        if (hi < lo)
+            hi = lo;
+
+        this.first = lo | 1;
+        this.odds = hi > first ? (hi - first + 1) / 2 : 0;
+        this.segments = (int) ((odds + SEGMENT_BITS - 1) / SEGMENT_BITS);
+        this.containsTwo = lo <= 2 && 2 < hi;
+        this.basePrimes = oddPrimesUpTo(hi > 0 ? sqrt(hi - 1) : 0);
+    }
+
+    static int sqrt(long n) {
+        long r = (long) Math.sqrt((double) n);
+        while (r * r > n) r--;
+        while ((r + 1) * (r + 1) <= n) r++;
+        return (int) r;
+    }
+
+    /**
+     * Simple odd-only sieve for the odd primes {@code <= limit}.
+     */
+    static int[] oddPrimesUpTo(int limit) {
+        if (limit < 3)
+            return new int[0];
+
+        // Index i represents 2i + 1
+        boolean[] composite = new boolean[limit / 2 + 1];
+        for (int i = 1; (2 * i + 1) * (2 * i + 1) <= limit; i++) {
+            if (!composite[i]) {
+                int p = 2 * i + 1;
+                for (int j = (p * p) / 2; j < composite.length; j += p) {
+                    composite[j] = true;
+                }
+            }
+        }
+
+        int[] primes = new int[composite.length];
+        int n = 0;
+        for (int i = 1; i < composite.length; i++) {
+            if (!composite[i] && 2 * i + 1 <= limit) {
+                primes[n++] = 2 * i + 1;
+            }
+        }
+        return Arrays.copyOf(primes, n);
+    }
+
+    long segmentBase(int segment) {
+        return first + 2L * segment * SEGMENT_BITS;
+    }
+
+    int segmentLength(int segment) {
+        return (int) Math.min(SEGMENT_BITS, odds - (long) segment * SEGMENT_BITS);
+    }
+
+    /**
+     * Sieves a segment, setting the bits of the composite odd numbers.
+     *
+     * @return the number of bits in the segment
+     */
+    int sieve(int segment, long[] bits) {
+        long base = segmentBase(segment);
+        int length = segmentLength(segment);
+        long end = base + 2L * length;
+
+        Arrays.fill(bits, 0, (length + 63) >>> 6, 0L);
+        if (base == 1)
+            bits[0] |= 1L;
+
+        for (int p : basePrimes) {
+            long pp = (long) p * p;
+            if (pp >= end)
+                break;
+
+            long start = Math.max(pp, (base + p - 1) / p * p);
+            if ((start & 1) == 0)
+                start += p;
+            for (long j = (start - base) >>> 1; j < length; j += p) {
+                bits[(int) (j >>> 6)] |= 1L << j;
+            }
+        }
+        return length;
+    }
+
+    long countSegment(int segment) {
+        long[] bits = new long[SEGMENT_BITS >>> 6];
+        int length = sieve(segment, bits);
+
+        int words = length >>> 6;
+        long count = 0;
+        for (int w = 0; w < words; w++) {
+            count += Long.bitCount(~bits[w]);
+        }
+        int tail = length & 63;
+        if (tail != 0) {
+            count += Long.bitCount(~bits[words] & ((1L << tail) - 1));
+        }
+        return count;
+    }
+
+    Spliterator.OfLong spliterator() {
+        return new SegmentSpliterator(0, segments, containsTwo);
+    }
+
+    final class SegmentSpliterator implements Spliterator.OfLong {
+        int segment;
+        final int fence;
+        boolean two;
+
+        long[] bits;
+        long base;
+        int index;
+        int length;
+
+        SegmentSpliterator(int segment, int fence, boolean two) {
+            this.segment = segment;
+            this.fence = fence;
+            this.two = two;
+        }
+
+        @Override
+        public boolean tryAdvance(LongConsumer action) {
+            if (two) {
+                two = false;
+                action.accept(2);
+                return true;
+            }
+
+            while (true) {
+                if (bits != null) {
+                    int i = nextClearBit();
+                    if (i < length) {
+                        index = i + 1;
+                        action.accept(base + 2L * i);
+                        return true;
+                    }
+                }
+                if (segment >= fence)
+                    return false;
+                load(segment++);
+            }
+        }
+
+        @Override
+        public void forEachRemaining(LongConsumer action) {
+            if (two) {
+                two = false;
+                action.accept(2);
+            }
+
+            while (true) {
+                if (bits != null) {
+                    for (int i = nextClearBit(); i < length; i = nextClearBit()) {
+                        index = i + 1;
+                        action.accept(base + 2L * i);
+                    }
+                }
+                if (segment >= fence)
+                    return;
+                load(segment++);
+            }
+        }
+
+        void load(int s) {
+            if (bits == null)
+                bits = new long[SEGMENT_BITS >>> 6];
+            length = sieve(s, bits);
+            base = segmentBase(s);
+            index = 0;
+        }
+
+        int nextClearBit() {
+            int w = index >>> 6;
+            if (index >= length)
+                return length;
+
+            long word = ~bits[w] & (-1L << index);
+            while (word == 0) {
+                if (++w << 6 >= length)
+                    return length;
+                word = ~bits[w];
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        public Spliterator.OfLong trySplit() {
+            int mid = (segment + fence) >>> 1;
+            if (mid <= segment || bits != null)
+                return null;
+
+            SegmentSpliterator prefix = new SegmentSpliterator(segment, mid, two);
+            two = false;
+            segment = mid;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            // Roughly one in log(n) numbers is prime, over estimate with all odds
+            return (long) (fence - segment) * SEGMENT_BITS + (two ? 1 : 0);
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+        }
+
+        @Override
+        public Comparator<? super Long> getComparator() {
+            return null;
+        }
+    }
+}
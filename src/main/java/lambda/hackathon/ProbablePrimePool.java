@@ -0,0 +1,330 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.math.BigInteger;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * A pool of probable primes, kept topped up by background producer threads,
+ * so that retrieving a prime costs a queue poll rather than a prime search.
+ * <p>
+ * There is a bounded queue per bit length, created on first use.  Whenever a
+ * retrieval leaves a queue at or below its low-water mark, refill tasks are
+ * submitted to the producers until the queue is full again.
+ * <p>
+ * If the generator throws, the producer stops refilling, and a retrieval
+ * that finds the queue empty with no refill running throws
+ * {@code IllegalStateException} rather than waiting forever.  The next
+ * retrieval tries refilling again.
+ */
+public class ProbablePrimePool implements AutoCloseable {
+
+    public static void main(String[] args) throws InterruptedException {
+        try (ProbablePrimePool pool = new ProbablePrimePool(16, 4, Runtime.getRuntime().availableProcessors())) {
+            pool.prefill(2048);
+            Thread.sleep(5000);
+            System.out.println(pool.stats(2048));
+
+            for (int i = 0; i < 8; i++) {
+                long start = System.nanoTime();
+                BigInteger p = pool.take(2048);
+                System.out.printf("%d bits in %.3f ms%n", p.bitLength(), (System.nanoTime() - start) / 1e6);
+            }
+            System.out.println(pool.stats(2048));
+        }
+    }
+
+    final int capacity;
+    final int lowWaterMark;
+    final int producers;
+    final IntFunction<BigInteger> generator;
+    final ExecutorService executor;
+    final ConcurrentMap<Integer, Primes> pools = new ConcurrentHashMap<>();
+
+    // How often a waiting retrieval checks whether the producers failed
+    static final long FAILURE_CHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    /**
+     * Creates a pool whose primes are generated by {@link ProbablePrime.Sieved}.
+     *
+     * @param capacity the maximum number of primes held per bit length
+     * @param lowWaterMark the number of primes per bit length at or below
+     *        which a refill is triggered
+     * @param producers the number of producer threads
+     */
+    ProbablePrimePool(int capacity, int lowWaterMark, int producers) {
+        this(capacity, lowWaterMark, producers, sieved(new ProbablePrime.Sieved(false)));
+    }
+
+    static IntFunction<BigInteger> sieved(ProbablePrime.Sieved s) {
+        return bitLength -> s.probablePrime(bitLength, ThreadLocalRandom.current());
+    }
+
+    ProbablePrimePool(int capacity, int lowWaterMark, int producers, IntFunction<BigInteger> generator) {
+        if (capacity <= 0 || lowWaterMark < 0 || lowWaterMark >= capacity || producers <= 0)
+            throw new IllegalArgumentException();
+
+        this.capacity = capacity;
+        this.lowWaterMark = lowWaterMark;
+        this.producers = producers;
+        this.generator = generator;
+
+        AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(producers, r -> {
+            Thread t = new Thread(r, "probable-prime-producer-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts filling the queue for a bit length, ahead of the first
+     * retrieval.
+     */
+    void prefill(int bitLength) {
+        primes(bitLength);
+    }
+
+    /**
+     * Retrieves a probable prime, waiting if necessary until one is available.
+     *
+     * @throws IllegalStateException if the generator failed, and no prime is
+     *         left or being generated
+     */
+    BigInteger take(int bitLength) throws InterruptedException {
+        Primes ps = primes(bitLength);
+        // Retry after a failure, which left no refill running
+        ps.refillIfLow();
+        BigInteger p;
+        while ((p = ps.queue.poll(FAILURE_CHECK_NANOS, TimeUnit.NANOSECONDS)) == null) {
+            ps.checkFailure();
+        }
+        ps.refillIfLow();
+        return p;
+    }
+
+    /**
+     * Retrieves a probable prime, waiting up to the specified time if
+     * necessary until one is available.
+     *
+     * @return a probable prime, or {@code null} if the time elapsed first
+     * @throws IllegalStateException if the generator failed, and no prime is
+     *         left or being generated
+     */
+    BigInteger poll(int bitLength, long timeout, TimeUnit unit) throws InterruptedException {
+        Primes ps = primes(bitLength);
+        ps.refillIfLow();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        BigInteger p;
+        while ((p = ps.queue.poll(Math.min(deadline - System.nanoTime(), FAILURE_CHECK_NANOS),
+                                  TimeUnit.NANOSECONDS)) == null) {
+            ps.checkFailure();
+            if (deadline - System.nanoTime() <= 0)
+                return null;
+        }
+        ps.refillIfLow();
+        return p;
+    }
+
+    /**
+     * Returns the number of primes of a bit length available without waiting.
+     */
+    int depth(int bitLength) {
+        Primes ps = pools.get(bitLength);
+        return ps == null ? 0 : ps.queue.size();
+    }
+
+    Stats stats(int bitLength) {
+        Primes ps = pools.get(bitLength);
+        return ps == null ? new Stats(bitLength, 0, 0, 0, 0, 0) : ps.stats();
+    }
+
+    Primes primes(int bitLength) {
+        if (bitLength < 2)
+            throw new IllegalArgumentException("bitLength < 2");
+        if (executor.isShutdown())
+            throw new IllegalStateException("Pool is closed");
+
+        Primes ps = pools.get(bitLength);
+        if (ps == null) {
+            Primes nps = new Primes(bitLength);
+            ps = pools.putIfAbsent(bitLength, nps);
+            if (ps == null) {
+                ps = nps;
+                ps.refillIfLow();
+            }
+        }
+        return ps;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    final class Primes {
+        final int bitLength;
+        final BlockingQueue<BigInteger> queue = new ArrayBlockingQueue<>(capacity);
+        // The number of refill tasks submitted but not yet finished
+        final AtomicInteger refills = new AtomicInteger();
+        final AtomicLong generated = new AtomicLong();
+        final AtomicLong generationNanos = new AtomicLong();
+        // The wall-clock time with at least one refill running, up to when
+        // the last one started
+        final AtomicLong activeNanos = new AtomicLong();
+        volatile long activeSince;
+        final AtomicLong failures = new AtomicLong();
+        // The last failure of the generator, until a prime is generated
+        volatile RuntimeException failure;
+
+        Primes(int bitLength) {
+            this.bitLength = bitLength;
+        }
+
+        void refillIfLow() {
+            if (queue.size() > lowWaterMark)
+                return;
+
+            // Use as many producers as there are primes missing, and no more
+            int wanted = Math.min(producers, queue.remainingCapacity());
+            for (int r = refills.get(); r < wanted; r = refills.get()) {
+                if (!refills.compareAndSet(r, r + 1))
+                    continue;
+                if (r == 0)
+                    activeSince = System.nanoTime();
+
+                try {
+                    executor.execute(this::refill);
+                }
+                catch (RuntimeException e) {
+                    // Rejected, the pool is closed
+                    refilled();
+                    return;
+                }
+            }
+        }
+
+        void refill() {
+            try {
+                while (queue.remainingCapacity() > 0 && !Thread.currentThread().isInterrupted()) {
+                    long start = System.nanoTime();
+                    BigInteger p = generator.apply(bitLength);
+                    generationNanos.addAndGet(System.nanoTime() - start);
+                    generated.incrementAndGet();
+                    failure = null;
+
+                    // Another producer may have filled the last slot
+                    if (!queue.offer(p))
+                        break;
+                }
+            }
+            catch (RuntimeException e) {
+                // Retrying at once would fail again, so leave it to the
+                // next retrieval, and let the waiting ones see the failure
+                failures.incrementAndGet();
+                failure = e;
+                return;
+            }
+            finally {
+                refilled();
+            }
+            // A retrieval may have drained the queue after the loop ended but
+            // while this producer still counted as refilling, and so not
+            // submitted a refill itself
+            if (!Thread.currentThread().isInterrupted())
+                refillIfLow();
+        }
+
+        void refilled() {
+            if (refills.decrementAndGet() == 0)
+                activeNanos.addAndGet(System.nanoTime() - activeSince);
+        }
+
+        void checkFailure() {
+            RuntimeException e = failure;
+            if (e != null && queue.isEmpty() && refills.get() == 0)
+                throw new IllegalStateException("Generating a prime of " + bitLength + " bits failed", e);
+        }
+
+        Stats stats() {
+            long n = generated.get();
+            long nanos = generationNanos.get();
+            long active = activeNanos.get();
+            if (refills.get() > 0)
+                active += System.nanoTime() - activeSince;
+            return new Stats(bitLength,
+                             queue.size(),
+                             n,
+                             failures.get(),
+                             active == 0 ? 0 : n / (active / 1e9),
+                             n == 0 ? 0 : nanos / 1e6 / n);
+        }
+    }
+
+    static final class Stats {
+        final int bitLength;
+        final int depth;
+        final long generated;
+        // The number of times the generator threw
+        final long failures;
+        // Primes generated per second by all the producers together, while
+        // any were refilling, not counting the time the queue was full
+        final double rate;
+        // Mean time of a producer to generate a prime
+        final double meanGenerationMillis;
+
+        Stats(int bitLength, int depth, long generated, long failures, double rate, double meanGenerationMillis) {
+            this.bitLength = bitLength;
+            this.depth = depth;
+            this.generated = generated;
+            this.failures = failures;
+            this.rate = rate;
+            this.meanGenerationMillis = meanGenerationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[bitLength = %d, depth = %d, generated = %d, failures = %d, rate = %.2f/s, mean generation time = %.2f ms]",
+                                 bitLength, depth, generated, failures, rate, meanGenerationMillis);
+        }
+    }
+}
@@ -34,69 +34,108 @@ import java.util.stream.IntStream;
 public class ReduceAndCollect {
 
     static void main(String[] args) {
+        List<Integer> squares;
 
-        // Sum of squares pure reduction to a list
-
-        {
-            List<Integer> squares = IntStream.rangeClosed(1, 8)
-                    .map(i -> i * i).boxed()
-                    .map(Collections::singletonList)
-                    .reduce(Collections.emptyList(),
-                            (l, r) -> {
-                                List<Integer> lr = new ArrayList<>();
-                                lr.addAll(l);
-                                lr.addAll(r);
-                                return lr;
-                            });
-        }
-
-        // Sum of squares pure fold to a list
-
-        {
-            List<Integer> squares = IntStream.rangeClosed(1, 8)
-                    .map(i -> i * i).boxed()
-                    .reduce(Collections.emptyList(),
-                            (l, e) -> {
-                                List<Integer> nl = new ArrayList<>(l);
-                                nl.add(e);
-                                return nl;
-                            },
-                            (l, r) -> {
-                                List<Integer> lr = new ArrayList<>();
-                                lr.addAll(l);
-                                lr.addAll(r);
-                                return lr;
-                            });
-        }
-
-        // Mutable reduce aka collect toList()
-
-        {
-            List<Integer> squares = IntStream.rangeClosed(1, 8)
-                    .map(i -> i * i).boxed()
-                    .collect(Collectors.toList());
-        }
-
-
-        // Explicit mutable reduction with Stream.collect
-
-        {
-            List<Integer> squares = IntStream.rangeClosed(1, 8)
-                    .map(i -> i * i).boxed()
-                    .collect(ArrayList::new,
-                             ArrayList::add,
-                             ArrayList::addAll);
-        }
-
-        // Explicit mutable reduction with Collector.of
-
-        {
-            List<Integer> squares = IntStream.rangeClosed(1, 8)
-                    .map(i -> i * i).boxed()
-                    .collect(Collector.of(ArrayList::new,
-                                          ArrayList::add,
-                                          (l, r) -> { l.addAll(r); return l; }
-                    ));
-        }
+        squares = pureReduce(IntStream.rangeClosed(1, 8).map(i -> i * i));
+        squares = pureFold(IntStream.rangeClosed(1, 8).map(i -> i * i));
+        squares = collectToList(IntStream.rangeClosed(1, 8).map(i -> i * i));
+        squares = collect(IntStream.rangeClosed(1, 8).map(i -> i * i));
+        squares = collectorOf(IntStream.rangeClosed(1, 8).map(i -> i * i));
+
+        Rope<Integer> rope;
+
+        rope = ropeReduce(IntStream.rangeClosed(1, 8).map(i -> i * i));
+        rope = ropeFold(IntStream.rangeClosed(1, 8).map(i -> i * i));
+        rope = ropeCollect(IntStream.rangeClosed(1, 8).map(i -> i * i));
+
+        IntList primitive = intList(IntStream.rangeClosed(1, 8).map(i -> i * i));
+    }
+
+    // Sum of squares pure reduction to a list
+
+    static List<Integer> pureReduce(IntStream s) {
+        return s.boxed()
+                .map(Collections::singletonList)
+                .reduce(Collections.emptyList(),
+                        (l, r) -> {
+                            List<Integer> lr = new ArrayList<>();
+                            lr.addAll(l);
+                            lr.addAll(r);
+                            return lr;
+                        });
+    }
+
+    // Sum of squares pure fold to a list
+
+    static List<Integer> pureFold(IntStream s) {
+        return s.boxed()
+                .reduce(Collections.emptyList(),
+                        (l, e) -> {
+                            List<Integer> nl = new ArrayList<>(l);
+                            nl.add(e);
+                            return nl;
+                        },
+                        (l, r) -> {
+                            List<Integer> lr = new ArrayList<>();
+                            lr.addAll(l);
+                            lr.addAll(r);
+                            return lr;
+                        });
+    }
+
+    // Sum of squares pure reduction and fold to a persistent list,
+    // concatenating in O(log n) rather than copying
+
+    static Rope<Integer> ropeReduce(IntStream s) {
+        return s.boxed()
+                .map(Rope::of)
+                .reduce(Rope.empty(), Rope::concat);
+    }
+
+    static Rope<Integer> ropeFold(IntStream s) {
+        return s.boxed()
+                .reduce(Rope.empty(), Rope::append, Rope::concat);
+    }
+
+    // Mutable reduce aka collect toList()
+
+    static List<Integer> collectToList(IntStream s) {
+        return s.boxed()
+                .collect(Collectors.toList());
+    }
+
+
+    // Explicit mutable reduction with Stream.collect
+
+    static List<Integer> collect(IntStream s) {
+        return s.boxed()
+                .collect(ArrayList::new,
+                         ArrayList::add,
+                         ArrayList::addAll);
+    }
+
+    // Explicit mutable reduction with Collector.of
+
+    static List<Integer> collectorOf(IntStream s) {
+        return s.boxed()
+                .collect(Collector.of(ArrayList::new,
+                                      ArrayList::add,
+                                      (l, r) -> { l.addAll(r); return l; }
+                ));
+    }
+
+    // Mutable reduction into a persistent list
+
+    static Rope<Integer> ropeCollect(IntStream s) {
+        return s.boxed()
+                .collect(Rope.toRope());
+    }
+
+    // Mutable reduction into a primitive list, without boxing
+
+    static IntList intList(IntStream s) {
+        return s.collect(IntList::new,
+                         IntList::add,
+                         IntList::link);
     }
 }
@@ -0,0 +1,489 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Collector;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable sequence that concatenates in logarithmic time, sharing the
+ * structure of the sequences it is made from, so it can be the result of a
+ * pure reduction.
+ * <p>
+ * A rope is a tree whose leaves are arrays of up to {@link #CHUNK} elements.
+ * Trees are kept balanced as in Prokopec and Odersky's Conc-trees: the levels
+ * of the two children of a node differ by at most one, and concatenating
+ * trees of levels m and n rebuilds O(|m - n|) nodes along the edge of the
+ * higher tree.  Concatenating a small leaf copies it into the last (or
+ * first) leaf of the other rope while there is room, so appending one
+ * element at a time fills leaves rather than growing a leaf per element.
+ * <p>
+ * For reduction,
+ * <pre>{@code
+ *     s.map(Rope::of).reduce(Rope.empty(), Rope::concat)
+ *     s.reduce(Rope.empty(), Rope::append, Rope::concat)
+ *     s.collect(Rope.toRope())
+ * }</pre>
+ * where the collector fills mutable chunks and links them into a rope,
+ * allocating little more than {@code collect(toList())}.
+ * <p>
+ * http://aleksandar-prokopec.com/resources/docs/lcpc-conc-trees.pdf
+ */
+public abstract class Rope<T> implements Iterable<T> {
+
+    public static void main(String[] args) {
+        Rope<Integer> squares = IntStream.rangeClosed(1, 100_000).parallel()
+                .map(i -> i * i).boxed()
+                .map(Rope::of)
+                .reduce(Rope.empty(), Rope::concat);
+        System.out.println(squares.size() + " squares, level " + squares.level()
+                           + ", last " + squares.get(squares.size() - 1));
+
+        Rope<Integer> firstSquares = IntStream.rangeClosed(1, 8)
+                .map(i -> i * i).boxed()
+                .collect(toRope());
+        System.out.println(firstSquares + " + " + firstSquares.concat(firstSquares));
+    }
+
+    /**
+     * The most elements of a leaf.
+     */
+    static final int CHUNK = 32;
+
+    static final Leaf<?> EMPTY = new Leaf<>(new Object[0]);
+
+    @SuppressWarnings("unchecked")
+    static <T> Rope<T> empty() {
+        return (Rope<T>) EMPTY;
+    }
+
+    static <T> Rope<T> of(T t) {
+        return new Leaf<>(new Object[] {t});
+    }
+
+    @SafeVarargs
+    static <T> Rope<T> of(T... ts) {
+        Rope<T> r = empty();
+        for (int i = 0; i < ts.length; i += CHUNK) {
+            r = r.concat(new Leaf<>(Arrays.copyOfRange(ts, i, Math.min(ts.length, i + CHUNK), Object[].class)));
+        }
+        return r;
+    }
+
+    /**
+     * Returns a collector into a rope, which fills an array of
+     * {@link #CHUNK} elements at a time and links the full arrays as leaves.
+     */
+    static <T> Collector<T, Builder<T>, Rope<T>> toRope() {
+        return Collector.of(Builder::new, Builder::add, Builder::addAll, Builder::build);
+    }
+
+    Rope() {
+    }
+
+    abstract int size();
+
+    /**
+     * @return the height of the tree, 0 for a leaf
+     */
+    abstract int level();
+
+    abstract T get(int index);
+
+    abstract Leaf<T> first();
+
+    abstract Leaf<T> last();
+
+    /**
+     * Returns this rope with its first leaf replaced.
+     */
+    abstract Rope<T> withFirst(Leaf<T> leaf);
+
+    /**
+     * Returns this rope with its last leaf replaced.
+     */
+    abstract Rope<T> withLast(Leaf<T> leaf);
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    Rope<T> append(T t) {
+        return concat(of(t));
+    }
+
+    Rope<T> concat(Rope<T> that) {
+        if (that.isEmpty())
+            return this;
+        if (isEmpty())
+            return that;
+
+        if (that instanceof Leaf) {
+            Leaf<T> last = last();
+            if (last.size() + that.size() <= CHUNK)
+                return withLast(last.concat((Leaf<T>) that));
+        }
+        if (this instanceof Leaf) {
+            Leaf<T> first = that.first();
+            if (size() + first.size() <= CHUNK)
+                return that.withFirst(((Leaf<T>) this).concat(first));
+        }
+        return link(this, that);
+    }
+
+    /**
+     * Links two non-empty ropes into a balanced rope.
+     */
+    static <T> Rope<T> link(Rope<T> xs, Rope<T> ys) {
+        int diff = ys.level() - xs.level();
+        if (diff >= -1 && diff <= 1)
+            return new Node<>(xs, ys);
+
+        if (diff < -1) {
+            // Descend the right edge of xs
+            Node<T> x = (Node<T>) xs;
+            if (x.left.level() >= x.right.level())
+                return new Node<>(x.left, link(x.right, ys));
+
+            Node<T> xr = (Node<T>) x.right;
+            Rope<T> nrr = link(xr.right, ys);
+            if (nrr.level() == x.level() - 3)
+                return new Node<>(x.left, new Node<>(xr.left, nrr));
+            else
+                return new Node<>(new Node<>(x.left, xr.left), nrr);
+        }
+        else {
+            // Descend the left edge of ys
+            Node<T> y = (Node<T>) ys;
+            if (y.right.level() >= y.left.level())
+                return new Node<>(link(xs, y.left), y.right);
+
+            Node<T> yl = (Node<T>) y.left;
+            Rope<T> nll = link(xs, yl.left);
+            if (nll.level() == y.level() - 3)
+                return new Node<>(new Node<>(nll, yl.right), y.right);
+            else
+                return new Node<>(nll, new Node<>(yl.right, y.right));
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        ArrayDeque<Rope<T>> pending = new ArrayDeque<>();
+        pending.push(this);
+
+        return new Iterator<T>() {
+            Object[] elements = {};
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                while (i == elements.length) {
+                    if (pending.isEmpty())
+                        return false;
+                    Rope<T> r = pending.pop();
+                    while (r instanceof Node) {
+                        pending.push(((Node<T>) r).right);
+                        r = ((Node<T>) r).left;
+                    }
+                    elements = ((Leaf<T>) r).elements;
+                    i = 0;
+                }
+                return true;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (!hasNext())
+                    throw new NoSuchElementException();
+                return (T) elements[i++];
+            }
+        };
+    }
+
+    @Override
+    public void forEach(Consumer<? super T> action) {
+        Rope<T> r = this;
+        while (r instanceof Node) {
+            ((Node<T>) r).left.forEach(action);
+            r = ((Node<T>) r).right;
+        }
+        ((Leaf<T>) r).forEach(action);
+    }
+
+    /**
+     * Returns a spliterator that splits at the nodes of the tree, into
+     * halves that are balanced to within a factor of about two.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return new Splitter<>(this);
+    }
+
+    Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (T t : this) {
+            if (sb.length() > 1)
+                sb.append(", ");
+            sb.append(t);
+        }
+        return sb.append(']').toString();
+    }
+
+    static final class Leaf<T> extends Rope<T> {
+        final Object[] elements;
+
+        Leaf(Object[] elements) {
+            this.elements = elements;
+        }
+
+        Leaf<T> concat(Leaf<T> that) {
+            Object[] a = Arrays.copyOf(elements, elements.length + that.elements.length);
+            System.arraycopy(that.elements, 0, a, elements.length, that.elements.length);
+            return new Leaf<>(a);
+        }
+
+        @Override
+        int size() {
+            return elements.length;
+        }
+
+        @Override
+        int level() {
+            return 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        T get(int index) {
+            return (T) elements[index];
+        }
+
+        @Override
+        Leaf<T> first() {
+            return this;
+        }
+
+        @Override
+        Leaf<T> last() {
+            return this;
+        }
+
+        @Override
+        Rope<T> withFirst(Leaf<T> leaf) {
+            return leaf;
+        }
+
+        @Override
+        Rope<T> withLast(Leaf<T> leaf) {
+            return leaf;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEach(Consumer<? super T> action) {
+            for (Object e : elements) {
+                action.accept((T) e);
+            }
+        }
+    }
+
+    static final class Node<T> extends Rope<T> {
+        final Rope<T> left;
+        final Rope<T> right;
+        final int size;
+        final int level;
+
+        Node(Rope<T> left, Rope<T> right) {
+            this.left = left;
+            this.right = right;
+            this.size = Math.addExact(left.size(), right.size());
+            this.level = 1 + Math.max(left.level(), right.level());
+        }
+
+        @Override
+        int size() {
+            return size;
+        }
+
+        @Override
+        int level() {
+            return level;
+        }
+
+        @Override
+        T get(int index) {
+            if (index < 0 || index >= size)
+                throw new IndexOutOfBoundsException(Integer.toString(index));
+
+            Rope<T> r = this;
+            while (r instanceof Node) {
+                Node<T> n = (Node<T>) r;
+                int s = n.left.size();
+                if (index < s)
+                    r = n.left;
+                else {
+                    r = n.right;
+                    index -= s;
+                }
+            }
+            return r.get(index);
+        }
+
+        @Override
+        Leaf<T> first() {
+            return left.first();
+        }
+
+        @Override
+        Leaf<T> last() {
+            return right.last();
+        }
+
+        @Override
+        Rope<T> withFirst(Leaf<T> leaf) {
+            return new Node<>(left.withFirst(leaf), right);
+        }
+
+        @Override
+        Rope<T> withLast(Leaf<T> leaf) {
+            return new Node<>(left, right.withLast(leaf));
+        }
+    }
+
+    static final class Splitter<T> implements Spliterator<T> {
+        // The rope not yet traversed, until traversal starts
+        Rope<T> rope;
+        Iterator<T> it;
+        long size;
+
+        Splitter(Rope<T> rope) {
+            this.rope = rope;
+            this.size = rope.size();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (it == null) {
+                it = rope.iterator();
+                rope = null;
+            }
+            if (!it.hasNext())
+                return false;
+            size--;
+            action.accept(it.next());
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (it == null) {
+                rope.forEach(action);
+                rope = null;
+                it = Collections.emptyIterator();
+                size = 0;
+            }
+            else {
+                Spliterator.super.forEachRemaining(action);
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (it != null || !(rope instanceof Node))
+                return null;
+
+            Node<T> n = (Node<T>) rope;
+            rope = n.right;
+            size = rope.size();
+            return new Splitter<>(n.left);
+        }
+
+        @Override
+        public long estimateSize() {
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | IMMUTABLE;
+        }
+    }
+
+    /**
+     * The mutable container of {@link #toRope()}, a rope of full leaves and
+     * a chunk being filled.
+     */
+    static final class Builder<T> {
+        Rope<T> rope = empty();
+        Object[] chunk = new Object[CHUNK];
+        int n;
+
+        void add(T t) {
+            if (n == CHUNK) {
+                rope = rope.concat(new Leaf<>(chunk));
+                chunk = new Object[CHUNK];
+                n = 0;
+            }
+            chunk[n++] = t;
+        }
+
+        Builder<T> addAll(Builder<T> that) {
+            rope = build().concat(that.build());
+            chunk = new Object[CHUNK];
+            n = 0;
+            return this;
+        }
+
+        Rope<T> build() {
+            if (n == 0)
+                return rope;
+            Rope<T> r = rope.concat(new Leaf<>(n == CHUNK ? chunk : Arrays.copyOf(chunk, n)));
+            rope = r;
+            chunk = new Object[CHUNK];
+            n = 0;
+            return r;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Stream;
+
+import static java.math.BigInteger.ONE;
+
+/**
+ * Safe primes, {@code p = 2q + 1} where {@code q} is also prime, as used for
+ * Diffie-Hellman groups, and strong primes.
+ * <p>
+ * http://en.wikipedia.org/wiki/Safe_prime
+ */
+public class SafePrime {
+    private static final BigInteger TWO = BigInteger.valueOf(2);
+
+    public static void main(String[] args) {
+        System.out.println(new Naive().safePrime(256));
+        System.out.println(new Sieved(false).safePrime(256));
+        System.out.println(new Sieved(true).safePrime(512));
+        System.out.println(strongPrime(512, ThreadLocalRandom.current()));
+    }
+
+    /**
+     * Generates probable primes {@code q} until {@code 2q + 1} is also a
+     * probable prime.
+     */
+    static class Naive {
+
+        public BigInteger safePrime(int bitLength) {
+            while (true) {
+                BigInteger q = BigInteger.probablePrime(bitLength - 1, ThreadLocalRandom.current());
+                BigInteger p = q.shiftLeft(1).add(ONE);
+                if (p.isProbablePrime(100))
+                    return p;
+            }
+        }
+    }
+
+    /**
+     * Sieves a window of candidates {@code q}, and their {@code 2q + 1},
+     * together against the small prime table of {@link ProbablePrime.Sieved},
+     * so a survivor has no small factor in either.  Survivors must then pass
+     * a base 2 Fermat test on both {@code q} and {@code 2q + 1}, each costing
+     * a single modular exponentiation, before the full Miller-Rabin tests.
+     * <p>
+     * When parallel, windows are searched concurrently, and the search stops
+     * once any window yields a safe prime.
+     */
+    static class Sieved {
+
+        final boolean parallel;
+        final MillerRabin.MillerRabinTest mrt;
+        final ProbablePrime.Sieved sieve;
+
+        Sieved(boolean parallel) {
+            this(parallel, new MillerRabin.Imperative(), 1 << 14);
+        }
+
+        Sieved(boolean parallel, MillerRabin.MillerRabinTest mrt, int window) {
+            this.parallel = parallel;
+            this.mrt = mrt;
+            this.sieve = new ProbablePrime.Sieved(false, mrt, window);
+        }
+
+        public BigInteger safePrime(int bitLength) {
+            if (bitLength < 33)
+                return new Naive().safePrime(bitLength);
+
+            Stream<BigInteger> s = Stream.generate(() -> searchWindow(bitLength, ThreadLocalRandom.current()));
+            s = parallel ? s.parallel() : s.sequential();
+            return s.filter(Objects::nonNull)
+                    .findAny()
+                    .get();
+        }
+
+        /**
+         * Searches a window of candidates from a random base.
+         *
+         * @return a safe prime, or {@code null} if there is none in the window
+         */
+        BigInteger searchWindow(int bitLength, Random rnd) {
+            int rounds = ProbablePrime.Sieved.rounds(bitLength);
+            long[] bs = sieve.bits.get();
+
+            BigInteger base = new BigInteger(bitLength - 1, rnd).setBit(bitLength - 2).setBit(0);
+            Arrays.fill(bs, 0L);
+            sieve.sieve(base, 1, 0, bs);
+            sieve.sieve(base, 2, 1, bs);
+
+            for (int k = sieve.nextClearBit(bs, 0); k < sieve.window; k = sieve.nextClearBit(bs, k + 1)) {
+                BigInteger q = base.add(BigInteger.valueOf(2L * k));
+                BigInteger p = q.shiftLeft(1).add(ONE);
+                if (p.bitLength() != bitLength)
+                    return null;
+
+                if (fermatBase2(q) && fermatBase2(p) &&
+                    mrt.millerRabinTest(q, rounds) && mrt.millerRabinTest(p, rounds))
+                    return p;
+            }
+            return null;
+        }
+    }
+
+    static boolean fermatBase2(BigInteger n) {
+        return TWO.modPow(n.subtract(ONE), n).equals(ONE);
+    }
+
+    /**
+     * Returns a strong prime {@code p}, using Gordon's algorithm, such that
+     * {@code p - 1} has a large prime factor {@code r}, {@code r - 1} has a
+     * large prime factor {@code t} and {@code p + 1} has a large prime factor
+     * {@code s}.
+     * <p>
+     * Gordon, "Strong primes are easy to find", EUROCRYPT 1984.
+     *
+     * @throws IllegalArgumentException if {@code bitLength < 36}, too few
+     *         bits for the factors {@code s} and {@code t}
+     */
+    static BigInteger strongPrime(int bitLength, Random rnd) {
+        if (bitLength < 36)
+            throw new IllegalArgumentException("bitLength < 36");
+
+        ProbablePrime.Sieved sieved = new ProbablePrime.Sieved(false);
+        int rounds = ProbablePrime.Sieved.rounds(bitLength);
+        // s and r are each about half of the bits of p, leaving room for j
+        int factorLength = bitLength / 2 - 8;
+
+        BigInteger s = sieved.probablePrime(factorLength, rnd);
+        BigInteger t = sieved.probablePrime(factorLength - 8, rnd);
+
+        // r = 2it + 1
+        BigInteger r = t.shiftLeft(1).add(ONE);
+        while (!MillerRabin.isProbablePrime(r, sieved.mrt, rounds)) {
+            r = r.add(t.shiftLeft(1));
+        }
+
+        // p0 = 2(s^(r - 2) mod r)s - 1, so p0 == 1 (mod r) and p0 == -1 (mod s)
+        BigInteger rs = r.multiply(s);
+        BigInteger p0 = s.modPow(r.subtract(TWO), r).multiply(s).shiftLeft(1).subtract(ONE);
+
+        // p = p0 + 2jrs, starting from a random p of the required bit length
+        BigInteger twoRs = rs.shiftLeft(1);
+        BigInteger origin = new BigInteger(bitLength, rnd).setBit(bitLength - 1);
+        BigInteger j = origin.subtract(p0).divide(twoRs).add(ONE);
+        BigInteger p = p0.add(twoRs.multiply(j));
+        while (!MillerRabin.isProbablePrime(p, sieved.mrt, rounds)) {
+            p = p.add(twoRs);
+        }
+        return p.bitLength() == bitLength ? p : strongPrime(bitLength, rnd);
+    }
+}
@@ -58,6 +58,12 @@ public class StreamExamples {
                 .collect(groupingBy(ic -> (char) ic.intValue(), TreeMap::new, counting()));
         m.entrySet().forEach(e -> System.out.println(e.getKey() + " -> " + e.getValue()));
 
+        // The same counts without boxing, into an array indexed by char
+        Frequencies.Sorted f = Frequencies.chars(System.getProperties().keySet().stream()
+                .flatMapToInt(o -> o.toString().chars()))
+                .byKey();
+        f.forEach((c, n) -> System.out.println((char) c + " -> " + n));
+
 
         Map<Long, Character> rm = m.entrySet().stream()
                 .collect(toMap(e -> e.getValue(),
@@ -0,0 +1,264 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+/**
+ * Sorts strings by length, then by their chars, the order of
+ * {@code comparingInt(String::length).thenComparing(naturalOrder())} that
+ * {@link Words} sorts its words in, without a comparator.
+ * <p>
+ * The strings are first distributed into buckets by length with a counting
+ * sort.  Strings of the same length are then sorted by multikey quicksort,
+ * a radix sort that partitions three ways on the char at a depth, less,
+ * equal and greater than a pivot char, and sorts the equal part on the next
+ * char.  Each char is read a few times rather than whole strings being
+ * compared again and again, and strings of one length need no end of string
+ * test.  The parallel sort forks a task per bucket and per large partition.
+ * <p>
+ * https://en.wikipedia.org/wiki/Multi-key_quicksort
+ */
+public class StringSort {
+
+    public static void main(String[] args) throws IOException {
+        Path filename = Paths.get(args.length > 0 ? args[0] : "target/JaneAusten-PrideAndPrejudice.txt");
+
+        List<String> byComparator = Words.Lambda.processWords(filename, false);
+        List<String> byRadix = Words.Radix.processWords(filename, false);
+        System.out.println(byRadix.size() + " words, same order " + byComparator.equals(byRadix));
+    }
+
+    // Sort in parallel beyond this many strings
+    static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    // Ranges no longer than this are sorted by insertion
+    static final int INSERTION_THRESHOLD = 12;
+
+    /**
+     * Returns a collector of strings into a list sorted by length, then by
+     * their chars, sorting in parallel if there are many.
+     */
+    static Collector<String, ?, List<String>> toSortedList() {
+        return Collector.of(ArrayList<String>::new, List::add, (l, r) -> { l.addAll(r); return l; },
+                            l -> {
+                                String[] a = l.toArray(new String[0]);
+                                if (a.length > PARALLEL_THRESHOLD)
+                                    parallelSort(a);
+                                else
+                                    sort(a);
+                                return Arrays.asList(a);
+                            });
+    }
+
+    /**
+     * Returns the strings of a stream in a list sorted by length, then by
+     * their chars.
+     */
+    static List<String> sorted(Stream<String> s) {
+        return s.collect(toSortedList());
+    }
+
+    static void sort(String[] a) {
+        int[] starts = byLength(a);
+        for (int l = 0; l < starts.length - 1; l++) {
+            sort(a, starts[l], starts[l + 1], 0);
+        }
+    }
+
+    static void parallelSort(String[] a) {
+        if (a.length <= PARALLEL_THRESHOLD) {
+            sort(a);
+            return;
+        }
+
+        int[] starts = byLength(a);
+        List<SortTask> tasks = new ArrayList<>();
+        for (int l = 0; l < starts.length - 1; l++) {
+            if (starts[l + 1] - starts[l] > 1)
+                tasks.add(new SortTask(a, starts[l], starts[l + 1], 0));
+        }
+        ForkJoinPool.commonPool().invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    /**
+     * Arranges strings in order of length, returning the start of the
+     * strings of each length, followed by the end of the array.
+     */
+    static int[] byLength(String[] a) {
+        int max = 0;
+        for (String s : a) {
+            max = Math.max(max, s.length());
+        }
+
+        int[] starts = new int[max + 2];
+        for (String s : a) {
+            starts[s.length() + 1]++;
+        }
+        for (int l = 1; l < starts.length; l++) {
+            starts[l] += starts[l - 1];
+        }
+
+        String[] sorted = new String[a.length];
+        int[] next = Arrays.copyOf(starts, max + 1);
+        for (String s : a) {
+            sorted[next[s.length()]++] = s;
+        }
+        System.arraycopy(sorted, 0, a, 0, a.length);
+        return starts;
+    }
+
+    /**
+     * Sorts a range of strings of the same length, whose chars before
+     * {@code depth} are equal.
+     */
+    static void sort(String[] a, int from, int to, int depth) {
+        while (to - from > INSERTION_THRESHOLD) {
+            if (depth == a[from].length())
+                return;
+
+            long bounds = partition(a, from, to, depth);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+
+            sort(a, from, lt, depth);
+            sort(a, gt, to, depth);
+            from = lt;
+            to = gt;
+            depth++;
+        }
+        insertionSort(a, from, to, depth);
+    }
+
+    /**
+     * Partitions a range of strings by their chars at a depth into those
+     * less than, equal to and greater than a pivot char.
+     *
+     * @return the start of the equal strings in the high half, and the start
+     *         of the greater strings in the low half
+     */
+    static long partition(String[] a, int from, int to, int depth) {
+        int pivot = pivot(a, from, to, depth);
+        int lt = from, gt = to;
+        for (int i = from; i < gt; ) {
+            int c = a[i].charAt(depth);
+            if (c < pivot)
+                swap(a, lt++, i++);
+            else if (c > pivot)
+                swap(a, i, --gt);
+            else
+                i++;
+        }
+        return (long) lt << 32 | gt;
+    }
+
+    /**
+     * Returns the median of the chars at a depth of the first, middle and
+     * last strings of a range.
+     */
+    static int pivot(String[] a, int from, int to, int depth) {
+        int x = a[from].charAt(depth), y = a[(from + to) >>> 1].charAt(depth), z = a[to - 1].charAt(depth);
+        return Math.max(Math.min(x, y), Math.min(Math.max(x, y), z));
+    }
+
+    static void insertionSort(String[] a, int from, int to, int depth) {
+        for (int i = from + 1; i < to; i++) {
+            String s = a[i];
+            int j = i - 1;
+            for (; j >= from && greater(a[j], s, depth); j--) {
+                a[j + 1] = a[j];
+            }
+            a[j + 1] = s;
+        }
+    }
+
+    /**
+     * Returns true if the first of two strings of the same length, equal
+     * before {@code depth}, is greater than the second.
+     */
+    static boolean greater(String s, String t, int depth) {
+        for (int d = depth; d < s.length(); d++) {
+            char c = s.charAt(d), u = t.charAt(d);
+            if (c != u)
+                return c > u;
+        }
+        return false;
+    }
+
+    static void swap(String[] a, int i, int j) {
+        String t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    static final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final String[] a;
+        final int from;
+        final int to;
+        final int depth;
+
+        SortTask(String[] a, int from, int to, int depth) {
+            this.a = a;
+            this.from = from;
+            this.to = to;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD || depth == a[from].length()) {
+                sort(a, from, to, depth);
+                return;
+            }
+
+            long bounds = partition(a, from, to, depth);
+            int lt = (int) (bounds >>> 32), gt = (int) bounds;
+
+            List<SortTask> parts = new ArrayList<>();
+            if (lt - from > 1)
+                parts.add(new SortTask(a, from, lt, depth));
+            if (gt - lt > 1)
+                parts.add(new SortTask(a, lt, gt, depth + 1));
+            if (to - gt > 1)
+                parts.add(new SortTask(a, gt, to, depth));
+            invokeAll(parts);
+        }
+    }
+}
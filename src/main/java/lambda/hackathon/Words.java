@@ -131,4 +131,23 @@ public class Words {
                     .collect(toList());
         }
     }
+
+    static class Radix {
+
+        static List<String> processWords(Path filename, boolean parallel) throws IOException {
+            try (Stream<String> s = Files.lines(filename, StandardCharsets.UTF_8)) {
+                return processWords(parallel ? s.parallel() : s.sequential());
+            }
+        }
+
+        // As Lambda, sorting by length and then by chars with a radix sort
+        static List<String> processWords(Stream<String> lines) throws IOException {
+            return lines
+                    .map(String::toLowerCase)
+                    .flatMap(line -> Stream.of(line.split(INTO_WORDS)))
+                    .filter(word -> word.length() >= LEN)
+                    .distinct()
+                    .collect(StringSort.toSortedList());
+        }
+    }
 }
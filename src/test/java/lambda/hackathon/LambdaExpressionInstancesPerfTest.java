@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.logic.results.Result;
+import org.openjdk.jmh.logic.results.RunResult;
+import org.openjdk.jmh.output.OutputFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.parameters.TimeValue;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Measures the time and allocation of evaluating lambda expressions, method
+ * references and anonymous classes, after {@link LambdaExpressionInstances}.
+ * <p>
+ * The escaping cases store the function in a field, as returning it from a
+ * method would, so an instance that is allocated stays allocated.  The local
+ * cases only apply the function, so once the call is inlined escape analysis
+ * should remove the allocation of a capturing lambda, a bound method
+ * reference or an anonymous class.  Non-capturing lambdas and unbound
+ * method references evaluate to the same instance every time, and allocate
+ * nothing either way.  Running with {@code -XX:-DoEscapeAnalysis} shows what
+ * the local cases would allocate.
+ */
+@State(Scope.Benchmark)
+public class LambdaExpressionInstancesPerfTest {
+
+    private static final String[] TESTS = {
+            "NonCapturing", "Capturing", "BoundMethodRef", "AnonymousClass",
+            "NonCapturingLocal", "CapturingLocal", "UnboundMethodRefLocal", "BoundMethodRefLocal",
+            "AnonymousClassLocal"
+    };
+
+    // The number of calls per measurement of allocation
+    private static final int CALLS = 10_000_000;
+
+    String prefix;
+    String word;
+
+    Consumer<String> escaped;
+
+    @Setup
+    public void prepare() {
+        // Not constants, so the compiler cannot fold the captured values
+        prefix = new String("A");
+        word = new String("lambda");
+    }
+
+    // Escaping
+
+    @GenerateMicroBenchmark
+    public Object testNonCapturing() {
+        return escaped = LambdaExpressionInstances.consumer();
+    }
+
+    @GenerateMicroBenchmark
+    public Object testCapturing() {
+        return escaped = LambdaExpressionInstances.consumer(prefix);
+    }
+
+    @GenerateMicroBenchmark
+    public Object testBoundMethodRef() {
+        return escaped = System.out::println;
+    }
+
+    @GenerateMicroBenchmark
+    public Object testAnonymousClass() {
+        return escaped = new Consumer<String>() {
+            @Override
+            public void accept(String s) {
+                System.out.println(s);
+            }
+        };
+    }
+
+    // Local, the function does not escape
+
+    @GenerateMicroBenchmark
+    public int testNonCapturingLocal() {
+        ToIntFunction<String> f = s -> s.length();
+        return f.applyAsInt(word);
+    }
+
+    @GenerateMicroBenchmark
+    public int testCapturingLocal() {
+        String p = prefix;
+        ToIntFunction<String> f = s -> p.length() + s.length();
+        return f.applyAsInt(word);
+    }
+
+    @GenerateMicroBenchmark
+    public int testUnboundMethodRefLocal() {
+        ToIntFunction<String> f = String::length;
+        return f.applyAsInt(word);
+    }
+
+    @GenerateMicroBenchmark
+    public int testBoundMethodRefLocal() {
+        ToIntFunction<String> f = prefix::compareTo;
+        return f.applyAsInt(word);
+    }
+
+    @GenerateMicroBenchmark
+    public int testAnonymousClassLocal() {
+        String p = prefix;
+        ToIntFunction<String> f = new ToIntFunction<String>() {
+            @Override
+            public int applyAsInt(String s) {
+                return p.length() + s.length();
+            }
+        };
+        return f.applyAsInt(word);
+    }
+
+    /**
+     * Calls a test a number of times.  Each test has its own call site, so
+     * the calls are inlined, as they are in a benchmark, and escape analysis
+     * sees the whole of each test.
+     */
+    int calls(String test, int n) {
+        int r = 0;
+        for (int i = 0; i < n; i++) {
+            switch (test) {
+                case "NonCapturing":
+                    r += testNonCapturing().hashCode();
+                    break;
+                case "Capturing":
+                    r += testCapturing().hashCode();
+                    break;
+                case "BoundMethodRef":
+                    r += testBoundMethodRef().hashCode();
+                    break;
+                case "AnonymousClass":
+                    r += testAnonymousClass().hashCode();
+                    break;
+                case "NonCapturingLocal":
+                    r += testNonCapturingLocal();
+                    break;
+                case "CapturingLocal":
+                    r += testCapturingLocal();
+                    break;
+                case "UnboundMethodRefLocal":
+                    r += testUnboundMethodRefLocal();
+                    break;
+                case "BoundMethodRefLocal":
+                    r += testBoundMethodRefLocal();
+                    break;
+                case "AnonymousClassLocal":
+                    r += testAnonymousClassLocal();
+                    break;
+                default:
+                    throw new IllegalArgumentException(test);
+            }
+        }
+        return r;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        PrintWriter pw = new PrintWriter(System.out, true);
+
+        for (String test : TESTS) {
+            pw.printf("%24s = %.2f ns, %.2f bytes/call\n", test, run("test" + test), allocated(test));
+        }
+    }
+
+    public static double run(String test) throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(".*LambdaExpressionInstancesPerfTest.*" + test + "$")
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(100))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.milliseconds(100))
+                .outputFormat(OutputFormatType.Silent)
+                .forks(5)
+                .build();
+
+        RunResult runResult = new Runner(opts).runSingle();
+        Result result = runResult.getPrimaryResult();
+        return result.getScore();
+    }
+
+    /**
+     * Returns the bytes allocated per call of a test on this thread, the
+     * least of several measurements.  This runs in the driver's JVM, not in
+     * the forks that JMH ran the benchmarks in; the repeated calls warm it
+     * up, so the later measurements see the compiled code.
+     */
+    public static double allocated(String test) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        LambdaExpressionInstancesPerfTest t = new LambdaExpressionInstancesPerfTest();
+        t.prepare();
+
+        long least = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long before = threads.getThreadAllocatedBytes(id);
+            t.calls(test, CALLS);
+            least = Math.min(least, threads.getThreadAllocatedBytes(id) - before);
+        }
+        return (double) least / CALLS;
+    }
+}
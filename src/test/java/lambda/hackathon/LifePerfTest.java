@@ -0,0 +1,266 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.logic.results.Result;
+import org.openjdk.jmh.logic.results.RunResult;
+import org.openjdk.jmh.output.OutputFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.parameters.TimeValue;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import lambda.hackathon.Life.Cell;
+
+@State(Scope.Benchmark)
+public class LifePerfTest {
+
+    // A named pattern, or soup-<size>-<density> for a random square soup
+    private static String SEED = System.getProperty("benchmark.seed", "rpentomino");
+
+    private static int GENERATIONS = Integer.getInteger("benchmark.generations", 32);
+
+    private static final String[] SEEDS = {
+            "blinker", "rpentomino", "acorn", "gosper",
+            "soup-64-0.35", "soup-128-0.1", "soup-128-0.35", "soup-128-0.6", "soup-256-0.35"
+    };
+
+    private static final String[] ENGINES = {
+            "Imperative", "Lambda", "Sparse", "Bitboard", "Tiled", "TiledIncremental", "HashLife", "Cycles", "Mapped"
+    };
+
+    Set<Cell> world;
+
+    @Setup
+    public void prepare() {
+        world = seed(SEED);
+    }
+
+    @GenerateMicroBenchmark
+    public int testImperative() {
+        return engine("Imperative").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testLambda() {
+        return engine("Lambda").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testSparse() {
+        return engine("Sparse").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testBitboard() {
+        return engine("Bitboard").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testTiled() {
+        return engine("Tiled").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testTiledIncremental() {
+        return engine("TiledIncremental").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testHashLife() {
+        return engine("HashLife").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testCycles() {
+        return engine("Cycles").step(world, GENERATIONS).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testMapped() {
+        return engine("Mapped").step(world, GENERATIONS).size();
+    }
+
+    static Life.Engine engine(String name) {
+        switch (name) {
+            case "Imperative":
+                return Life.Imperative::step;
+            case "Lambda":
+                return Life.Lambda::step;
+            case "Sparse":
+                return new LifeSparse();
+            case "Bitboard":
+                // Steps one board, not a new board from cells each generation
+                return new Life.Engine() {
+                    @Override
+                    public Set<Cell> step(Set<Cell> world) {
+                        return LifeBitboard.step(world);
+                    }
+
+                    @Override
+                    public Set<Cell> step(Set<Cell> world, long generations) {
+                        return LifeBitboard.step(world, generations);
+                    }
+                };
+            case "Tiled":
+                return new LifeTiled(ForkJoinPool.commonPool(), false);
+            case "TiledIncremental":
+                return new LifeTiled(ForkJoinPool.commonPool(), true);
+            case "HashLife":
+                return new HashLife();
+            case "Cycles":
+                return new LifeCycles();
+            case "Mapped":
+                return new LifeMapped();
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    static Set<Cell> seed(String name) {
+        switch (name) {
+            case "blinker":
+                return pattern("OOO");
+            case "rpentomino":
+                return pattern(".OO",
+                               "OO.",
+                               ".O.");
+            case "acorn":
+                return pattern(".O.....",
+                               "...O...",
+                               "OO..OOO");
+            case "gosper":
+                return pattern("........................O...........",
+                               "......................O.O...........",
+                               "............OO......OO............OO",
+                               "...........O...O....OO............OO",
+                               "OO........O.....O...OO..............",
+                               "OO........O...O.OO....O.O...........",
+                               "..........O.....O.......O...........",
+                               "...........O...O....................",
+                               "............OO......................");
+        }
+
+        String[] soup = name.split("-");
+        if (soup.length != 3 || !soup[0].equals("soup"))
+            throw new IllegalArgumentException(name);
+
+        int size = Integer.parseInt(soup[1]);
+        double density = Double.parseDouble(soup[2]);
+        Random r = new Random(42);
+        Set<Cell> world = new HashSet<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (r.nextDouble() < density)
+                    world.add(Cell.of(x, y));
+            }
+        }
+        return world;
+    }
+
+    static Set<Cell> pattern(String... rows) {
+        Set<Cell> world = new HashSet<>();
+        for (int y = 0; y < rows.length; y++) {
+            for (int x = 0; x < rows[y].length(); x++) {
+                if (rows[y].charAt(x) == 'O')
+                    world.add(Cell.of(x, y));
+            }
+        }
+        return world;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        PrintWriter pw = new PrintWriter(System.out, true);
+
+        for (String seed : SEEDS) {
+            // The live cells summed over the generations, the work done
+            LifeSparse s = new LifeSparse();
+            s.load(seed(seed));
+            long cells = 0;
+            for (int g = 0; g < GENERATIONS; g++) {
+                s.step();
+                cells += s.population();
+            }
+
+            pw.printf("seed = %s, generations = %d\n", seed, GENERATIONS);
+            for (String engine : ENGINES) {
+                double ns = run(seed, "test" + engine);
+                double generationsPerSecond = GENERATIONS / (ns / 1e9);
+                pw.printf("%16s = %.2f ns, %.0f generations/s, %.0f cells/s, %.0f bytes/generation\n",
+                          engine, ns, generationsPerSecond, cells / (ns / 1e9), allocated(seed, engine));
+            }
+        }
+    }
+
+    public static double run(String seed, String test) throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(".*LifePerfTest.*" + test + "$")
+                .jvmArgs("-Dbenchmark.seed=" + seed, "-Dbenchmark.generations=" + GENERATIONS)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(100))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.milliseconds(100))
+                .outputFormat(OutputFormatType.Silent)
+                .forks(5)
+                .build();
+
+        RunResult runResult = new Runner(opts).runSingle();
+        Result result = runResult.getPrimaryResult();
+        return result.getScore();
+    }
+
+    /**
+     * Returns the bytes allocated per generation by an engine on this
+     * thread, after a warm up run.  Engines that fork tasks to other threads,
+     * such as the tiled engine, allocate some of their bytes there.
+     */
+    public static double allocated(String seed, String engine) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long id = Thread.currentThread().getId();
+        Set<Cell> world = seed(seed);
+
+        engine(engine).step(world, GENERATIONS);
+        long before = threads.getThreadAllocatedBytes(id);
+        engine(engine).step(world, GENERATIONS);
+        return (double) (threads.getThreadAllocatedBytes(id) - before) / GENERATIONS;
+    }
+}
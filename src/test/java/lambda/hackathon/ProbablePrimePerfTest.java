@@ -46,7 +46,7 @@ public class ProbablePrimePerfTest {
 
     private static int N = Integer.getInteger("benchmark.n", 1);
 
-    private static int BIT_LENGTH = 128;
+    private static int BIT_LENGTH = Integer.getInteger("benchmark.bitLength", 128);
 
     @GenerateMicroBenchmark
     public void testImperative() throws IOException {
@@ -63,6 +63,26 @@ public class ProbablePrimePerfTest {
         new ProbablePrime.Lambda(true).probablePrimesUsingRange(N, BIT_LENGTH);
     }
 
+    @GenerateMicroBenchmark
+    public void testLambdaSpliteratorSeq() throws IOException {
+        new ProbablePrime.Lambda(false).probablePrimesUsingSpliterator(N, BIT_LENGTH);
+    }
+
+    @GenerateMicroBenchmark
+    public void testLambdaSpliteratorPar() throws IOException {
+        new ProbablePrime.Lambda(true).probablePrimesUsingSpliterator(N, BIT_LENGTH);
+    }
+
+    @GenerateMicroBenchmark
+    public void testSievedSeq() throws IOException {
+        new ProbablePrime.Sieved(false).probablePrimes(N, BIT_LENGTH);
+    }
+
+    @GenerateMicroBenchmark
+    public void testSievedPar() throws IOException {
+        new ProbablePrime.Sieved(true).probablePrimes(N, BIT_LENGTH);
+    }
+
     public static void main(String[] args) throws RunnerException {
         PrintWriter pw = new PrintWriter(System.out, true);
 
@@ -72,7 +92,22 @@ public class ProbablePrimePerfTest {
             pw.printf("imperative = %.2f ns, ", run(n, "testImperative"));
             pw.printf("sequential = %.2f ns, ", seqTime = run(n, "testLambdaSeq"));
             pw.printf("parallel = %.2f ns, ", parTime = run(n, "testLambdaPar"));
-            pw.printf("speed-up = %.2f\n", seqTime / parTime);
+            pw.printf("speed-up = %.2f, ", seqTime / parTime);
+            pw.printf("spliterator sequential = %.2f ns, ", seqTime = run(n, "testLambdaSpliteratorSeq"));
+            pw.printf("spliterator parallel = %.2f ns, ", parTime = run(n, "testLambdaSpliteratorPar"));
+            pw.printf("spliterator speed-up = %.2f, ", seqTime / parTime);
+            pw.printf("sieved sequential = %.2f ns, ", seqTime = run(n, "testSievedSeq"));
+            pw.printf("sieved parallel = %.2f ns, ", parTime = run(n, "testSievedPar"));
+            pw.printf("sieved speed-up = %.2f\n", seqTime / parTime);
+        }
+
+        // The sizes the sieve is for, one prime at a time against the JDK
+        double jdkTime, sievedTime;
+        for (int bitLength = 1024; bitLength <= 4096; bitLength = bitLength * 2) {
+            pw.printf("bit length = %d, ", bitLength);
+            pw.printf("imperative = %.2f ms, ", jdkTime = runBitLength(bitLength, "testImperative"));
+            pw.printf("sieved sequential = %.2f ms, ", sievedTime = runBitLength(bitLength, "testSievedSeq"));
+            pw.printf("sieve speed-up = %.2f\n", jdkTime / sievedTime);
         }
     }
 
@@ -94,4 +129,24 @@ public class ProbablePrimePerfTest {
         Result result = runResult.getPrimaryResult();
         return result.getScore();
     }
+
+    public static double runBitLength(int bitLength, String test) throws RunnerException {
+        // A prime of these sizes takes from milliseconds to seconds
+        Options opts = new OptionsBuilder()
+                .include(".*ProbablePrimePerfTest.*" + test)
+                .jvmArgs("-Dbenchmark.bitLength=" + bitLength)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupIterations(1)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(2))
+                .outputFormat(OutputFormatType.Silent)
+                .forks(2)
+                .build();
+
+        RunResult runResult = new Runner(opts).runSingle();
+        Result result = runResult.getPrimaryResult();
+        return result.getScore();
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.logic.results.Result;
+import org.openjdk.jmh.logic.results.RunResult;
+import org.openjdk.jmh.output.OutputFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.parameters.TimeValue;
+
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+public class ReduceAndCollectPerfTest {
+
+    private static int SIZE = Integer.getInteger("benchmark.size", 1000);
+
+    private static boolean PARALLEL = Boolean.getBoolean("benchmark.parallel");
+
+    private static final int[] SIZES = {10, 1_000, 100_000, 10_000_000};
+
+    // The strategies that copy the list on every combine, O(n^2), are
+    // not run beyond this size
+    private static final int QUADRATIC_LIMIT = 10_000;
+
+    private static final String[] BOXED = {
+            "PureReduce", "PureFold", "CollectToList", "Collect", "CollectorOf",
+            "RopeReduce", "RopeFold", "RopeCollect"
+    };
+
+    private static final String[] PRIMITIVE = {
+            "IntList", "ToArray"
+    };
+
+    static IntStream source() {
+        IntStream s = IntStream.range(0, SIZE).map(i -> i * i);
+        return PARALLEL ? s.parallel() : s;
+    }
+
+    @GenerateMicroBenchmark
+    public int testPureReduce() {
+        return ReduceAndCollect.pureReduce(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testPureFold() {
+        return ReduceAndCollect.pureFold(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testCollectToList() {
+        return ReduceAndCollect.collectToList(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testCollect() {
+        return ReduceAndCollect.collect(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testCollectorOf() {
+        return ReduceAndCollect.collectorOf(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testRopeReduce() {
+        return ReduceAndCollect.ropeReduce(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testRopeFold() {
+        return ReduceAndCollect.ropeFold(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testRopeCollect() {
+        return ReduceAndCollect.ropeCollect(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testIntList() {
+        return ReduceAndCollect.intList(source()).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testToArray() {
+        return source().toArray().length;
+    }
+
+    static Function<IntStream, ?> strategy(String name) {
+        switch (name) {
+            case "PureReduce":
+                return ReduceAndCollect::pureReduce;
+            case "PureFold":
+                return ReduceAndCollect::pureFold;
+            case "CollectToList":
+                return ReduceAndCollect::collectToList;
+            case "Collect":
+                return ReduceAndCollect::collect;
+            case "CollectorOf":
+                return ReduceAndCollect::collectorOf;
+            case "RopeReduce":
+                return ReduceAndCollect::ropeReduce;
+            case "RopeFold":
+                return ReduceAndCollect::ropeFold;
+            case "RopeCollect":
+                return ReduceAndCollect::ropeCollect;
+            case "IntList":
+                return ReduceAndCollect::intList;
+            case "ToArray":
+                return IntStream::toArray;
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        PrintWriter pw = new PrintWriter(System.out, true);
+
+        for (int size : SIZES) {
+            for (boolean parallel : new boolean[] {false, true}) {
+                SIZE = size;
+                PARALLEL = parallel;
+                pw.printf("size = %d, %s\n", size, parallel ? "parallel" : "sequential");
+                for (String[] strategies : new String[][] {BOXED, PRIMITIVE}) {
+                    for (String strategy : strategies) {
+                        if (size > QUADRATIC_LIMIT && strategy.startsWith("Pure")) {
+                            pw.printf("%16s = skipped, quadratic\n", strategy);
+                            continue;
+                        }
+                        double ns = run("test" + strategy);
+                        pw.printf("%16s = %.2f ns, %.2f ns/element, %.1f bytes/element\n",
+                                  strategy, ns, ns / size, allocated(strategy) / size);
+                    }
+                }
+            }
+        }
+    }
+
+    public static double run(String test) throws RunnerException {
+        Options opts = new OptionsBuilder()
+                .include(".*ReduceAndCollectPerfTest.*" + test + "$")
+                .jvmArgs("-Dbenchmark.size=" + SIZE, "-Dbenchmark.parallel=" + PARALLEL)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.NANOSECONDS)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.milliseconds(100))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.milliseconds(100))
+                .outputFormat(OutputFormatType.Silent)
+                .forks(5)
+                .build();
+
+        RunResult runResult = new Runner(opts).runSingle();
+        Result result = runResult.getPrimaryResult();
+        return result.getScore();
+    }
+
+    /**
+     * Returns the bytes allocated by one run of a strategy, after a warm up
+     * run, summed over the threads of a pool of its own.  The pool outlives
+     * the sample, so no fork/join worker ends and takes its count with it,
+     * and each thread's count is taken from its own count before.
+     */
+    public static double allocated(String strategy) {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Function<IntStream, ?> f = strategy(strategy);
+
+        // A parallel stream run from a worker forks into the worker's pool
+        ForkJoinPool pool = new ForkJoinPool(ForkJoinPool.getCommonPoolParallelism());
+        try {
+            pool.submit(() -> f.apply(source())).join();
+            Map<Long, Long> before = allocated(threads);
+            pool.submit(() -> f.apply(source())).join();
+            Map<Long, Long> after = allocated(threads);
+            // Not this thread, which only waits, and takes the snapshots
+            after.remove(Thread.currentThread().getId());
+            long bytes = 0;
+            for (Map.Entry<Long, Long> e : after.entrySet()) {
+                bytes += e.getValue() - before.getOrDefault(e.getKey(), 0L);
+            }
+            return bytes;
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    static Map<Long, Long> allocated(com.sun.management.ThreadMXBean threads) {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> m = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            // -1 for a thread that has ended
+            if (bytes[i] >= 0)
+                m.put(ids[i], bytes[i]);
+        }
+        return m;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2013, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+package lambda.hackathon;
+
+import org.openjdk.jmh.annotations.GenerateMicroBenchmark;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.logic.results.Result;
+import org.openjdk.jmh.logic.results.RunResult;
+import org.openjdk.jmh.output.OutputFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.parameters.TimeValue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+public class SafePrimePerfTest {
+
+    private static int BIT_LENGTH = Integer.getInteger("benchmark.bitLength", 512);
+
+    @GenerateMicroBenchmark
+    public BigInteger testNaive() throws IOException {
+        return new SafePrime.Naive().safePrime(BIT_LENGTH);
+    }
+
+    @GenerateMicroBenchmark
+    public BigInteger testSievedSeq() throws IOException {
+        return new SafePrime.Sieved(false).safePrime(BIT_LENGTH);
+    }
+
+    @GenerateMicroBenchmark
+    public BigInteger testSievedPar() throws IOException {
+        return new SafePrime.Sieved(true).safePrime(BIT_LENGTH);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        PrintWriter pw = new PrintWriter(System.out, true);
+
+        double naiveTime, seqTime, parTime;
+        for (int bitLength = 512; bitLength <= 2048; bitLength = bitLength * 2) {
+            pw.printf("bit length = %d, ", bitLength);
+            pw.printf("naive = %.2f ms, ", naiveTime = run(bitLength, "testNaive"));
+            pw.printf("sieved sequential = %.2f ms, ", seqTime = run(bitLength, "testSievedSeq"));
+            pw.printf("sieved parallel = %.2f ms, ", parTime = run(bitLength, "testSievedPar"));
+            pw.printf("sieve speed-up = %.2f, parallel speed-up = %.2f\n", naiveTime / seqTime, seqTime / parTime);
+        }
+    }
+
+    public static double run(int bitLength, String test) throws RunnerException {
+        // Safe prime generation takes from milliseconds to minutes, and
+        // varies greatly from one prime to the next
+        Options opts = new OptionsBuilder()
+                .include(".*SafePrimePerfTest.*" + test)
+                .jvmArgs("-Dbenchmark.bitLength=" + bitLength)
+                .mode(Mode.AverageTime)
+                .timeUnit(TimeUnit.MILLISECONDS)
+                .warmupIterations(1)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(5))
+                .outputFormat(OutputFormatType.Silent)
+                .forks(2)
+                .build();
+
+        RunResult runResult = new Runner(opts).runSingle();
+        Result result = runResult.getPrimaryResult();
+        return result.getScore();
+    }
+}
@@ -69,12 +69,24 @@ public class WordsPerfTest {
         return Words.Lambda.processWords(filename, true).size();
     }
 
+    @GenerateMicroBenchmark
+    public int testRadixSeq() throws IOException {
+        return Words.Radix.processWords(filename, false).size();
+    }
+
+    @GenerateMicroBenchmark
+    public int testRadixPar() throws IOException {
+        return Words.Radix.processWords(filename, true).size();
+    }
+
     public static void main(String[] args) throws RunnerException {
         PrintWriter pw = new PrintWriter(System.out, true);
 
         pw.printf("       imperative = %.2f ns\n", run("testImperative"));
         pw.printf("sequential stream = %.2f ns\n", run("testLambdaSeq"));
         pw.printf("  parallel stream = %.2f ns\n", run("testLambdaPar"));
+        pw.printf(" sequential radix = %.2f ns\n", run("testRadixSeq"));
+        pw.printf("   parallel radix = %.2f ns\n", run("testRadixPar"));
     }
 
     public static double run(String test) throws RunnerException {